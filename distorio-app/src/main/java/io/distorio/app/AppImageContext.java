@@ -1,35 +1,242 @@
 package io.distorio.app;
 
+import io.distorio.operation.api.ImageBuffer;
 import io.distorio.operation.api.ImageOperation;
+import io.distorio.operation.api.ProgressMonitor;
+import io.distorio.operation.api.SelectionCapability;
+import io.distorio.operation.api.TiledImage;
 import java.io.File;
+import java.nio.IntBuffer;
+import javafx.geometry.Rectangle2D;
 import javafx.scene.image.Image;
+import javafx.scene.image.PixelBuffer;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
 
-public class AppImageContext implements ImageOperation.OperationContext {
+public class AppImageContext implements ImageOperation.OperationContext, SelectionCapability {
 
   private Image image;
+  // Pixel storage behind image; created lazily for images that did not come from a buffer
+  private ImageBuffer buffer;
+  // The rectangle of image that buffer covers, if buffer is a view of image's storage
+  private Rectangle2D viewport;
+  // Set instead of image for images too large to hold in one buffer; overview is a downsampled
+  // copy shown beneath the visible tiles
+  private TiledImage tiled;
+  private ImageBuffer overview;
   private double selectionX, selectionY, selectionWidth, selectionHeight;
   private File imageFile;
+  private ProgressMonitor progressMonitor = ProgressMonitor.NONE;
+  private boolean preview;
 
+  /**
+   * @return the current image, or null if it is tiled. For a {@link ImageBuffer#view view}, which
+   * is displayed without copying it, this is a copy of its pixels.
+   */
   public Image getImage() {
+    return viewport == null ? image : buffer.toImage();
+  }
+
+  /**
+   * @return the image to display: the current image, or for a {@link ImageBuffer#view view} the
+   * storage it shares, of which only {@link #getViewport()} is to be shown
+   */
+  public Image getDisplayImage() {
     return image;
   }
 
+  /**
+   * @return the rectangle of {@link #getDisplayImage()} that is the current image, or null if it is
+   * all of it
+   */
+  public Rectangle2D getViewport() {
+    return viewport;
+  }
+
   public void setImage(Image image) {
     this.image = image;
+    this.viewport = null;
+    this.buffer = null;
+    this.tiled = null;
+    this.overview = null;
+  }
+
+  /**
+   * Pixels of the current image. A tiled image is materialized on first call, which fails with
+   * {@link IllegalArgumentException} if it is too large for a single buffer.
+   */
+  @Override
+  public ImageBuffer getBuffer() {
+    if (buffer == null && tiled != null) {
+      return tiled.toBuffer();
+    }
+    if (buffer == null && image != null) {
+      buffer = ImageBuffer.fromImage(image);
+    }
+    return buffer;
+  }
+
+  /**
+   * Makes {@code buffer} the current image. The displayed {@link Image} shares the buffer's
+   * memory through a JavaFX {@link PixelBuffer}, so no pixels are copied. JavaFX needs rows
+   * without gaps, so a {@link ImageBuffer#view view} is displayed as the {@link #getViewport()
+   * viewport} of all the storage it shares, until it is compacted; see {@link #rewrapCompacted}.
+   */
+  @Override
+  public void setBuffer(ImageBuffer buffer) {
+    this.buffer = buffer;
+    this.image = null;
+    this.viewport = null;
+    this.tiled = null;
+    this.overview = null;
+    if (buffer == null) {
+      return;
+    }
+    ImageBuffer.Placement placement = buffer.getPlacement();
+    ImageBuffer storage = placement.storage();
+    image = wrap(storage);
+    if (storage != buffer) {
+      viewport = new Rectangle2D(placement.x(), placement.y(), buffer.getWidth(),
+        buffer.getHeight());
+    }
+  }
+
+  /**
+   * Displays a {@link ImageBuffer#view view} that was compacted since it was set from its own
+   * storage, so the displayed image no longer keeps the view's parent alive.
+   *
+   * @return whether the displayed image was replaced
+   */
+  boolean rewrapCompacted() {
+    if (viewport == null || buffer.getParent() != null) {
+      return false;
+    }
+    image = wrap(buffer);
+    viewport = null;
+    return true;
+  }
+
+  @Override
+  public boolean isTiled() {
+    return tiled != null;
+  }
+
+  @Override
+  public TiledImage getTiledImage() {
+    if (tiled != null) {
+      return tiled;
+    }
+    ImageBuffer pixels = getBuffer();
+    return pixels == null ? null : TiledImage.of(pixels);
+  }
+
+  /**
+   * Makes {@code image} the current image. Images that merely wrap a buffer are displayed like
+   * {@link #setBuffer}; others stay tiled, and {@link #getImage()} returns null. The overview is
+   * kept, so hosts must refresh it with {@link #setTiledImage(TiledImage, ImageBuffer)} when the
+   * new image looks different.
+   */
+  @Override
+  public void setTiledImage(TiledImage image) {
+    setTiledImage(image, overview);
+  }
+
+  /**
+   * Makes {@code image} the current image with {@code overview} as its downsampled stand-in.
+   */
+  public void setTiledImage(TiledImage image, ImageBuffer overview) {
+    if (image.getBackingBuffer() != null) {
+      setBuffer(image.getBackingBuffer());
+      return;
+    }
+    this.image = null;
+    this.viewport = null;
+    this.buffer = null;
+    this.tiled = image;
+    this.overview = overview;
+  }
+
+  /**
+   * @return the downsampled stand-in for a tiled image, or null
+   */
+  public ImageBuffer getOverview() {
+    return overview;
+  }
+
+  /**
+   * @return whatever currently holds the image (an {@link Image} or a {@link TiledImage}), for
+   * identity checks that tell whether the image was replaced
+   */
+  Object getContent() {
+    return tiled != null ? tiled : image;
+  }
+
+  public boolean hasImage() {
+    return getContent() != null;
+  }
+
+  /**
+   * Full-resolution width of the current image, or 0 if there is none.
+   */
+  public int getWidth() {
+    if (tiled != null) {
+      return tiled.getWidth();
+    }
+    if (viewport != null) {
+      return (int) viewport.getWidth();
+    }
+    return image == null ? 0 : (int) image.getWidth();
+  }
+
+  /**
+   * Full-resolution height of the current image, or 0 if there is none.
+   */
+  public int getHeight() {
+    if (tiled != null) {
+      return tiled.getHeight();
+    }
+    if (viewport != null) {
+      return (int) viewport.getHeight();
+    }
+    return image == null ? 0 : (int) image.getHeight();
+  }
+
+  /**
+   * Copies the image (whichever form it is in) from {@code other}.
+   */
+  void setContent(AppImageContext other) {
+    this.image = other.image;
+    this.viewport = other.viewport;
+    this.buffer = other.buffer;
+    this.tiled = other.tiled;
+    this.overview = other.overview;
+  }
+
+  /**
+   * Wraps {@code buffer} in an {@link Image} that shares its memory.
+   */
+  static Image wrap(ImageBuffer buffer) {
+    PixelBuffer<IntBuffer> pixels = new PixelBuffer<>(buffer.getWidth(), buffer.getHeight(),
+      buffer.getPixels(), PixelFormat.getIntArgbPreInstance());
+    return new WritableImage(pixels);
   }
 
+  @Override
   public double getSelectionX() {
     return selectionX;
   }
 
+  @Override
   public double getSelectionY() {
     return selectionY;
   }
 
+  @Override
   public double getSelectionWidth() {
     return selectionWidth;
   }
 
+  @Override
   public double getSelectionHeight() {
     return selectionHeight;
   }
@@ -41,6 +248,7 @@ public class AppImageContext implements ImageOperation.OperationContext {
     this.selectionHeight = h;
   }
 
+  @Override
   public boolean hasSelection() {
     return selectionWidth > 0 && selectionHeight > 0;
   }
@@ -52,4 +260,45 @@ public class AppImageContext implements ImageOperation.OperationContext {
   public void setImageFile(File file) {
     this.imageFile = file;
   }
+
+  @Override
+  public ProgressMonitor getProgressMonitor() {
+    return progressMonitor;
+  }
+
+  public void setProgressMonitor(ProgressMonitor progressMonitor) {
+    this.progressMonitor = progressMonitor != null ? progressMonitor : ProgressMonitor.NONE;
+  }
+
+  @Override
+  public boolean isPreview() {
+    return preview;
+  }
+
+  /**
+   * Creates a detached {@link #isPreview() preview} context for {@code proxy}, a downsampled copy
+   * of this image, with the selection scaled to match.
+   */
+  AppImageContext preview(ImageBuffer proxy) {
+    double scale = (double) proxy.getWidth() / getWidth();
+    AppImageContext copy = new AppImageContext();
+    copy.setBuffer(proxy);
+    copy.setSelection(selectionX * scale, selectionY * scale, selectionWidth * scale,
+      selectionHeight * scale);
+    copy.imageFile = imageFile;
+    copy.preview = true;
+    return copy;
+  }
+
+  /**
+   * Creates a detached copy of the image, selection and file for an operation running on a worker
+   * thread, so the live context is only touched again when the result is published.
+   */
+  public AppImageContext copy() {
+    AppImageContext copy = new AppImageContext();
+    copy.setContent(this);
+    copy.setSelection(selectionX, selectionY, selectionWidth, selectionHeight);
+    copy.imageFile = imageFile;
+    return copy;
+  }
 }
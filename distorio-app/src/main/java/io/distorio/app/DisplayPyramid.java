@@ -0,0 +1,91 @@
+package io.distorio.app;
+
+import io.distorio.operation.api.ImageBuffer;
+import io.distorio.operation.api.ImagePyramid;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javafx.application.Platform;
+import javafx.scene.image.Image;
+
+/**
+ * Downsampled copies (1/2, 1/4, 1/8, ...) of the displayed image, so that a zoomed-out view draws
+ * a texture close to its screen size instead of sampling the full-resolution one on every frame.
+ * <p>
+ * Levels are built one after another on a background worker and become usable as soon as each is
+ * done; until then the closest finer level is shown. A pyramid belongs to one image: when the image
+ * changes, the old pyramid is cancelled and a new one is started.
+ */
+class DisplayPyramid {
+
+  /**
+   * No further levels are built once the long edge is at most this.
+   */
+  private static final int MIN_EDGE = 256;
+
+  private static final ExecutorService WORKER = Executors.newSingleThreadExecutor(r -> {
+    Thread thread = new Thread(r, "distorio-pyramid");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  // Level 0 is the image itself; only touched on the FX thread
+  private final List<Image> levels = new ArrayList<>();
+  private volatile boolean cancelled;
+
+  /**
+   * Starts building levels for {@code base}, whose pixels are {@code pixels}.
+   *
+   * @param onLevelReady runs on the FX thread whenever a new level becomes available
+   */
+  DisplayPyramid(Image base, ImageBuffer pixels, Runnable onLevelReady) {
+    levels.add(base);
+    WORKER.execute(() -> {
+      ImageBuffer level = pixels;
+      while (!cancelled && Math.max(level.getWidth(), level.getHeight()) > MIN_EDGE) {
+        level = ImagePyramid.halve(level);
+        Image image = AppImageContext.wrap(level);
+        Platform.runLater(() -> {
+          if (!cancelled) {
+            levels.add(image);
+            onLevelReady.run();
+          }
+        });
+      }
+    });
+  }
+
+  /**
+   * @return whether {@code image} is level 0 of this pyramid
+   */
+  boolean isFor(Image image) {
+    return levels.get(0) == image;
+  }
+
+  /**
+   * Makes {@code base}, an image with the same pixels, level 0 instead of the current one.
+   */
+  void rebase(Image base) {
+    levels.set(0, base);
+  }
+
+  /**
+   * @return the coarsest available level that is still at least as large as the image at
+   * {@code zoom}, so the view never scales a level up
+   */
+  Image levelFor(double zoom) {
+    int level = 0;
+    while (level + 1 < levels.size() && zoom <= 1.0 / (1 << (level + 1))) {
+      level++;
+    }
+    return levels.get(level);
+  }
+
+  /**
+   * Stops building and ignores levels still in flight.
+   */
+  void cancel() {
+    cancelled = true;
+  }
+}
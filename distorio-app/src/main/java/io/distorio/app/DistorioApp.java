@@ -1,5 +1,10 @@
 package io.distorio.app;
 
+import io.distorio.operation.api.OperationRegistry;
+import io.distorio.ui.common.IconUtil;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import javafx.application.Application;
 import javafx.stage.Stage;
 
@@ -7,9 +12,36 @@ public class DistorioApp extends Application {
 
   @Override
   public void start(Stage primaryStage) {
+    StartupProfiler profiler = new StartupProfiler();
     primaryStage.setTitle("Distorio Image Editor");
-    new MainWindow(primaryStage);
+    List<OperationRegistry.OperationWithProvider> operations = profiler.time("Plugins", () -> {
+      List<OperationRegistry.OperationWithProvider> all =
+        OperationRegistry.loadAllOperationsWithProviders();
+      all.forEach(OperationRegistry.OperationWithProvider::getOperation);
+      return all;
+    });
+    profiler.track("Icons", prewarmIcons(operations));
+    profiler.time("Main window", () -> new MainWindow(primaryStage));
+    profiler.trackFirstPulse(primaryStage.getScene());
     primaryStage.show();
+    profiler.reportWhenDone();
+  }
+
+  /**
+   * Starts rendering the built-in icons and those of every operation in the background, so that
+   * the window is built without waiting for them.
+   *
+   * @return completes once all of them are rendered
+   */
+  private static CompletableFuture<?> prewarmIcons(
+    List<OperationRegistry.OperationWithProvider> operations) {
+    List<CompletableFuture<?>> icons = new ArrayList<>();
+    icons.add(IconUtil.prewarmBuiltIn(MainWindow.ICON_SIZE));
+    for (OperationRegistry.OperationWithProvider op : operations) {
+      op.getOperation().getMetadata().getIconPath().ifPresent(path -> icons.add(
+        IconUtil.prewarm(path, MainWindow.ICON_SIZE, op.getProviderClassLoader())));
+    }
+    return CompletableFuture.allOf(icons.toArray(CompletableFuture[]::new));
   }
 
   public static void main(String[] args) {
@@ -0,0 +1,191 @@
+package io.distorio.app;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Memory-mapped scratch file that undo history spills compressed deltas into.
+ * <p>
+ * The file is mapped in fixed-size segments; a block never straddles two segments, so reading it
+ * back is a slice of one mapping and the OS pages it in only when an undo actually reaches it.
+ * Freed space goes to a first-fit free list and is reused, so the file stays about as large as
+ * the live history.
+ * <p>
+ * Files are named after the owning process. They are deleted on {@link #close()} and by a shutdown
+ * hook, and files left behind by processes that no longer run are deleted when a new swap file is
+ * created in the same directory.
+ */
+final class HistorySwap implements Closeable {
+
+  /**
+   * Size of one mapping. Also the largest block that can be spilled.
+   */
+  static final int SEGMENT_SIZE = 64 << 20;
+
+  private static final String PREFIX = "distorio-history-";
+  private static final String SUFFIX = ".swap";
+
+  private final Path file;
+  private final FileChannel channel;
+  private final List<MappedByteBuffer> segments = new ArrayList<>();
+  // Free extents by offset, coalesced with their neighbours
+  private final TreeMap<Long, Integer> free = new TreeMap<>();
+  private final Thread shutdownHook;
+  private long end;
+
+  private HistorySwap(Path file) throws IOException {
+    this.file = file;
+    this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    this.shutdownHook = new Thread(this::deleteQuietly, "distorio-history-cleanup");
+    Runtime.getRuntime().addShutdownHook(shutdownHook);
+  }
+
+  /**
+   * Creates a swap file in {@code directory}, first deleting swap files of dead processes there.
+   */
+  static HistorySwap create(Path directory) throws IOException {
+    Files.createDirectories(directory);
+    deleteStaleFiles(directory);
+    long pid = ProcessHandle.current().pid();
+    return new HistorySwap(Files.createTempFile(directory, PREFIX + pid + "-", SUFFIX));
+  }
+
+  /**
+   * Copies {@code data} into the file.
+   *
+   * @return the offset to pass to {@link #read} and {@link #free}
+   */
+  synchronized long write(byte[] data) throws IOException {
+    if (data.length > SEGMENT_SIZE) {
+      throw new IOException("Block of " + data.length + " bytes is larger than a swap segment");
+    }
+    long offset = allocate(data.length);
+    segment(offset).put((int) (offset % SEGMENT_SIZE), data);
+    return offset;
+  }
+
+  /**
+   * @return a read-only view of a block; pages are loaded from disk as they are touched
+   */
+  ByteBuffer read(long offset, int length) {
+    MappedByteBuffer segment;
+    synchronized (this) {
+      segment = segments.get((int) (offset / SEGMENT_SIZE));
+    }
+    return segment.slice((int) (offset % SEGMENT_SIZE), length).asReadOnlyBuffer();
+  }
+
+  /**
+   * Returns a block's space for reuse.
+   */
+  synchronized void free(long offset, int length) {
+    Map.Entry<Long, Integer> before = free.floorEntry(offset);
+    if (before != null && before.getKey() + before.getValue() == offset
+      && before.getKey() / SEGMENT_SIZE == offset / SEGMENT_SIZE) {
+      offset = before.getKey();
+      length += before.getValue();
+      free.remove(offset);
+    }
+    Integer after = free.get(offset + length);
+    if (after != null && (offset + length) / SEGMENT_SIZE == offset / SEGMENT_SIZE) {
+      free.remove(offset + length);
+      length += after;
+    }
+    free.put(offset, length);
+  }
+
+  /**
+   * Forgets every block, keeping the file and its mappings for reuse.
+   */
+  synchronized void clear() {
+    free.clear();
+    end = 0;
+  }
+
+  @Override
+  public void close() {
+    deleteQuietly();
+    try {
+      Runtime.getRuntime().removeShutdownHook(shutdownHook);
+    } catch (IllegalStateException e) {
+      // Already shutting down; the hook deletes the file
+    }
+  }
+
+  private long allocate(int length) {
+    for (Map.Entry<Long, Integer> extent : free.entrySet()) {
+      long offset = extent.getKey();
+      int available = extent.getValue();
+      if (available >= length) {
+        free.remove(offset);
+        if (available > length) {
+          free.put(offset + length, available - length);
+        }
+        return offset;
+      }
+    }
+    long segmentEnd = (end / SEGMENT_SIZE + 1) * SEGMENT_SIZE;
+    if (end + length > segmentEnd) {
+      if (segmentEnd > end) {
+        free(end, (int) (segmentEnd - end));
+      }
+      end = segmentEnd;
+    }
+    long offset = end;
+    end += length;
+    return offset;
+  }
+
+  private MappedByteBuffer segment(long offset) throws IOException {
+    int index = (int) (offset / SEGMENT_SIZE);
+    while (segments.size() <= index) {
+      segments.add(channel.map(FileChannel.MapMode.READ_WRITE,
+        (long) segments.size() * SEGMENT_SIZE, SEGMENT_SIZE));
+    }
+    return segments.get(index);
+  }
+
+  private synchronized void deleteQuietly() {
+    segments.clear();
+    free.clear();
+    try {
+      channel.close();
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  private static void deleteStaleFiles(Path directory) {
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+      for (Path stale : files) {
+        String name = stale.getFileName().toString();
+        int dash = name.indexOf('-', PREFIX.length());
+        if (dash < 0) {
+          continue;
+        }
+        try {
+          long pid = Long.parseLong(name.substring(PREFIX.length(), dash));
+          if (ProcessHandle.of(pid).isEmpty()) {
+            Files.deleteIfExists(stale);
+          }
+        } catch (NumberFormatException | IOException e) {
+          // Not one of ours, or still in use; leave it alone
+        }
+      }
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+}
@@ -0,0 +1,402 @@
+package io.distorio.app;
+
+import io.distorio.operation.api.ImageBuffer;
+import io.distorio.operation.api.ParallelPixels;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A compact record of how to turn the current image of an {@link AppImageContext} into another
+ * one, kept by {@link OperationHistory} for undo and redo.
+ * <p>
+ * Applying a delta returns the delta that leads back, so the same object moves between the undo
+ * and redo stacks. Which form is used depends on the two images:
+ * <ul>
+ *   <li>same size: the XOR of the two images, stored only for the 64x64 tiles that differ,
+ *   compressed. XOR is its own inverse, so the delta leads both ways.</li>
+ *   <li>different size: a compressed snapshot of the other image.</li>
+ *   <li>either image tiled: a reference to the other image. Tiled images re-derive their tiles on
+ *   demand and cost nothing to keep; an image that a tiled one was lazily derived from is kept
+ *   alive by it anyway.</li>
+ *   <li>a crop to a {@link ImageBuffer#view view}: a reference to the other image, made by the
+ *   {@link OperationExecutor} rather than by {@link #between}. Undo puts the uncropped buffer
+ *   back as it is, without decompressing or copying anything.</li>
+ * </ul>
+ * Compression and decompression run in parallel on {@link ParallelPixels}. The compressed
+ * {@link Block}s can be moved to a {@link HistorySwap} file with {@link #spill} and are read back
+ * from there transparently.
+ */
+abstract class ImageDelta {
+
+  static final int TILE_SIZE = 64;
+
+  // Whether OperationHistory counts this delta against its disk budget; FX thread only
+  boolean onDisk;
+
+  /**
+   * Applies this delta to {@code context} and returns the delta that restores its previous image.
+   */
+  abstract ImageDelta apply(AppImageContext context);
+
+  /**
+   * @return the compressed size of this delta, in bytes, whether in memory or spilled
+   */
+  abstract long sizeBytes();
+
+  /**
+   * @return whether {@link #spill} moves anything out of memory
+   */
+  boolean canSpill() {
+    return false;
+  }
+
+  /**
+   * Moves the compressed data to {@code swap}. May run while the delta is being applied.
+   */
+  void spill(HistorySwap swap) throws IOException {
+  }
+
+  /**
+   * Frees spilled data, and anything else kept only for this delta. Called once the delta has
+   * left the history; it must not be applied afterwards.
+   *
+   * @return whether a buffer that may be displayed got storage of its own, so the display has to
+   * pick it up
+   */
+  boolean release() {
+    return false;
+  }
+
+  /**
+   * A compressed block held in memory until it is spilled, then read from the swap file.
+   */
+  static final class Block {
+
+    private final int length;
+    // Exactly one of data and swap is set; swap is written before data is cleared, so a reader
+    // that sees no data always finds the block in the swap file
+    private volatile byte[] data;
+    private volatile HistorySwap swap;
+    private long offset;
+
+    Block(byte[] data) {
+      this.data = data;
+      this.length = data.length;
+    }
+
+    ByteBuffer buffer() {
+      byte[] bytes = data;
+      return bytes != null ? ByteBuffer.wrap(bytes) : swap.read(offset, length);
+    }
+
+    void spill(HistorySwap target) throws IOException {
+      byte[] bytes = data;
+      if (bytes != null) {
+        offset = target.write(bytes);
+        swap = target;
+        data = null;
+      }
+    }
+
+    void release() {
+      HistorySwap current = swap;
+      if (current != null) {
+        current.free(offset, length);
+      }
+    }
+
+    static void spill(Block[] blocks, HistorySwap target) throws IOException {
+      for (Block block : blocks) {
+        if (block != null) {
+          block.spill(target);
+        }
+      }
+    }
+
+    static void release(Block[] blocks) {
+      for (Block block : blocks) {
+        if (block != null) {
+          block.release();
+        }
+      }
+    }
+
+    static long sizeBytes(Block[] blocks) {
+      long size = 0;
+      for (Block block : blocks) {
+        size += block == null ? Integer.BYTES : block.length + 16;
+      }
+      return size;
+    }
+  }
+
+  /**
+   * Records how to get from {@code after} back to {@code before}.
+   */
+  static ImageDelta between(AppImageContext before, AppImageContext after) {
+    if (after.isTiled()) {
+      // Typically a lazy view of before, which then stays alive anyway
+      return new ReferenceDelta(before.copy());
+    }
+    if (before.isTiled()) {
+      return capture(before);
+    }
+    ImageBuffer from = after.getBuffer();
+    ImageBuffer to = before.getBuffer();
+    if (from.getWidth() == to.getWidth() && from.getHeight() == to.getHeight()) {
+      return XorDelta.of(from, to);
+    }
+    return SnapshotDelta.of(to);
+  }
+
+  /**
+   * Records the current image of {@code context} as a whole.
+   */
+  static ImageDelta capture(AppImageContext context) {
+    return context.isTiled()
+      ? new ReferenceDelta(context.copy())
+      : SnapshotDelta.of(context.getBuffer());
+  }
+
+  /**
+   * Compressed XOR of two same-size images, for the tiles where they differ.
+   */
+  static final class XorDelta extends ImageDelta {
+
+    private final int width;
+    private final int height;
+    private final int tilesX;
+    // Compressed XOR per tile in row-major tile order; null where the images are equal
+    private final Block[] tiles;
+    private final long sizeBytes;
+
+    private XorDelta(int width, int height, Block[] tiles) {
+      this.width = width;
+      this.height = height;
+      this.tilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+      this.tiles = tiles;
+      this.sizeBytes = Block.sizeBytes(tiles);
+    }
+
+    static XorDelta of(ImageBuffer a, ImageBuffer b) {
+      int width = a.getWidth();
+      int height = a.getHeight();
+      int tilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+      Block[] tiles = new Block[tilesX * ((height + TILE_SIZE - 1) / TILE_SIZE)];
+      ParallelPixels.forEachTile(width, height, TILE_SIZE, (x, y, w, h) -> {
+        int[] pa = new int[w * h];
+        int[] pb = new int[w * h];
+        a.getPixels(x, y, w, h, pa, 0, w);
+        b.getPixels(x, y, w, h, pb, 0, w);
+        boolean changed = false;
+        for (int i = 0; i < pa.length; i++) {
+          pa[i] ^= pb[i];
+          changed |= pa[i] != 0;
+        }
+        if (changed) {
+          tiles[(y / TILE_SIZE) * tilesX + x / TILE_SIZE] =
+            new Block(PixelCodec.compress(pa, 0, pa.length));
+        }
+      });
+      return new XorDelta(width, height, tiles);
+    }
+
+    @Override
+    ImageDelta apply(AppImageContext context) {
+      ImageBuffer current = context.getBuffer();
+      if (current.getWidth() != width || current.getHeight() != height) {
+        throw new IllegalStateException("History does not match the current image");
+      }
+      ImageBuffer result = ImageBuffer.allocate(width, height);
+      ParallelPixels.forEachTile(width, height, TILE_SIZE, (x, y, w, h) -> {
+        int[] pixels = new int[w * h];
+        current.getPixels(x, y, w, h, pixels, 0, w);
+        Block tile = tiles[(y / TILE_SIZE) * tilesX + x / TILE_SIZE];
+        if (tile != null) {
+          int[] xor = new int[w * h];
+          PixelCodec.decompress(tile.buffer(), xor, 0, xor.length);
+          for (int i = 0; i < pixels.length; i++) {
+            pixels[i] ^= xor[i];
+          }
+        }
+        result.setPixels(x, y, w, h, pixels, 0, w);
+      });
+      context.setBuffer(result);
+      return this;
+    }
+
+    @Override
+    long sizeBytes() {
+      return sizeBytes;
+    }
+
+    @Override
+    boolean canSpill() {
+      return true;
+    }
+
+    @Override
+    void spill(HistorySwap swap) throws IOException {
+      Block.spill(tiles, swap);
+    }
+
+    @Override
+    boolean release() {
+      Block.release(tiles);
+      return false;
+    }
+  }
+
+  /**
+   * Compressed copy of a whole image, in bands of rows.
+   */
+  static final class SnapshotDelta extends ImageDelta {
+
+    private final int width;
+    private final int height;
+    private final Block[] bands;
+    private final long sizeBytes;
+
+    private SnapshotDelta(int width, int height, Block[] bands) {
+      this.width = width;
+      this.height = height;
+      this.bands = bands;
+      this.sizeBytes = Block.sizeBytes(bands);
+    }
+
+    static SnapshotDelta of(ImageBuffer image) {
+      int width = image.getWidth();
+      int height = image.getHeight();
+      Block[] bands = new Block[(height + TILE_SIZE - 1) / TILE_SIZE];
+      ParallelPixels.forEachRowBand(bands.length, (band, bandEnd) -> {
+        for (int b = band; b < bandEnd; b++) {
+          int y = b * TILE_SIZE;
+          int rows = Math.min(TILE_SIZE, height - y);
+          int[] pixels = new int[width * rows];
+          image.getPixels(0, y, width, rows, pixels, 0, width);
+          bands[b] = new Block(PixelCodec.compress(pixels, 0, pixels.length));
+        }
+      });
+      return new SnapshotDelta(width, height, bands);
+    }
+
+    @Override
+    ImageDelta apply(AppImageContext context) {
+      ImageDelta back = capture(context);
+      ImageBuffer restored = ImageBuffer.allocate(width, height);
+      ParallelPixels.forEachRowBand(bands.length, (band, bandEnd) -> {
+        for (int b = band; b < bandEnd; b++) {
+          int y = b * TILE_SIZE;
+          int rows = Math.min(TILE_SIZE, height - y);
+          int[] pixels = new int[width * rows];
+          PixelCodec.decompress(bands[b].buffer(), pixels, 0, pixels.length);
+          restored.setPixels(0, y, width, rows, pixels, 0, width);
+        }
+      });
+      context.setBuffer(restored);
+      return back;
+    }
+
+    @Override
+    long sizeBytes() {
+      return sizeBytes;
+    }
+
+    @Override
+    boolean canSpill() {
+      return true;
+    }
+
+    @Override
+    void spill(HistorySwap swap) throws IOException {
+      Block.spill(bands, swap);
+    }
+
+    @Override
+    boolean release() {
+      Block.release(bands);
+      return false;
+    }
+  }
+
+  /**
+   * The other image itself, for tiled images and the images they are derived from.
+   */
+  static final class ReferenceDelta extends ImageDelta {
+
+    private final AppImageContext image;
+
+    ReferenceDelta(AppImageContext image) {
+      this.image = image;
+    }
+
+    @Override
+    ImageDelta apply(AppImageContext context) {
+      ImageDelta back = new ReferenceDelta(context.copy());
+      context.setContent(image);
+      return back;
+    }
+
+    @Override
+    long sizeBytes() {
+      if (!image.isTiled()) {
+        return (long) image.getWidth() * image.getHeight() * Integer.BYTES;
+      }
+      ImageBuffer overview = image.getOverview();
+      return overview == null ? 0
+        : (long) overview.getWidth() * overview.getHeight() * Integer.BYTES;
+    }
+  }
+
+  /**
+   * Switches between an uncropped buffer and a {@link ImageBuffer#view view} of it. As long as
+   * the undo step is in the history, the view can share the uncropped pixels; when the step is
+   * dropped, the view is {@link ImageBuffer#compact compacted} so the uncropped pixels can go.
+   */
+  static final class ViewDelta extends ImageDelta {
+
+    private final AppImageContext image;
+    private final ImageBuffer view;
+    // Whether image is the uncropped one, i.e. this delta undoes the crop
+    private final boolean undoesCrop;
+    // Set on the worker before the FX thread releases the applied delta
+    private volatile boolean applied;
+
+    /**
+     * @param uncropped the image from before the crop
+     * @param view      the buffer that replaced it
+     */
+    ViewDelta(AppImageContext uncropped, ImageBuffer view) {
+      this(uncropped, view, true);
+    }
+
+    private ViewDelta(AppImageContext image, ImageBuffer view, boolean undoesCrop) {
+      this.image = image;
+      this.view = view;
+      this.undoesCrop = undoesCrop;
+    }
+
+    @Override
+    ImageDelta apply(AppImageContext context) {
+      ImageDelta back = new ViewDelta(context.copy(), view, !undoesCrop);
+      context.setContent(image);
+      applied = true;
+      return back;
+    }
+
+    @Override
+    long sizeBytes() {
+      return (long) image.getWidth() * image.getHeight() * Integer.BYTES;
+    }
+
+    @Override
+    boolean release() {
+      // Once applied, the delta leading back is in the history in its place
+      if (undoesCrop && !applied && view.getParent() != null) {
+        view.compact();
+        return true;
+      }
+      return false;
+    }
+  }
+}
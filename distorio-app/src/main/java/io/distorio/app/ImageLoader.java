@@ -0,0 +1,318 @@
+package io.distorio.app;
+
+import io.distorio.operation.api.ImageBuffer;
+import io.distorio.operation.api.ImagePyramid;
+import io.distorio.operation.api.ProgressMonitor;
+import io.distorio.operation.api.TiledImage;
+import io.distorio.ui.common.I18n;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+import javafx.scene.image.Image;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.event.IIOReadProgressListener;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Decodes images on a background thread.
+ * <p>
+ * Large images are first decoded with {@link ImageReadParam#setSourceSubsampling} so a preview can
+ * be shown almost immediately. The full-resolution pixels are then written into an off-heap
+ * {@link ImageBuffer} band by band. Formats with random access to rows (tiled images and TIFF
+ * strips) are decoded band by band as well, so only one band is ever held as a
+ * {@link BufferedImage}; other formats are decoded in one pass and copied out in bands.
+ * <p>
+ * Images that exceed the JavaFX texture size or a single buffer are not decoded up front at all:
+ * they become a {@link TiledImage} whose tiles are decoded from the file as they are viewed, with
+ * the preview kept as their overview.
+ */
+public class ImageLoader {
+
+  /**
+   * Longest edge of the subsampled preview. Images smaller than this skip the preview pass.
+   */
+  static final int PREVIEW_EDGE = 2048;
+
+  /**
+   * Approximate number of pixels decoded or copied per band.
+   */
+  private static final int BAND_PIXELS = 4 << 20;
+
+  /**
+   * Images with a longer edge are kept tiled, since JavaFX cannot display them as one texture.
+   */
+  private static final int MAX_BUFFER_EDGE = Integer.getInteger("distorio.tiled.edge", 16384);
+
+  private static final long MAX_BUFFER_PIXELS = Integer.MAX_VALUE / Integer.BYTES;
+
+  private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+    Thread thread = new Thread(r, "distorio-image-loader");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /**
+   * Receives the subsampled preview on the FX thread.
+   */
+  @FunctionalInterface
+  public interface PreviewListener {
+
+    /**
+     * @param preview a downsampled version of the image
+     * @param width   full-resolution width of the image being loaded
+     * @param height  full-resolution height of the image being loaded
+     */
+    void onPreview(Image preview, int width, int height);
+  }
+
+  /**
+   * A loaded image: either a tiled view of fully decoded pixels, or a lazily decoded tiled image
+   * together with a downsampled overview.
+   *
+   * @param image    the image; {@link TiledImage#getBackingBuffer()} is set if it was decoded
+   * @param overview the subsampled preview of a lazily decoded image, otherwise null
+   */
+  public record LoadedImage(TiledImage image, ImageBuffer overview) {
+  }
+
+  /**
+   * Starts loading {@code file}. The task's value is the loaded image, or null if no
+   * {@link ImageReader} understands the file.
+   */
+  public Task<LoadedImage> load(File file, PreviewListener previewListener) {
+    LoadTask task = new LoadTask(file, previewListener);
+    worker.execute(task);
+    return task;
+  }
+
+  /**
+   * @return {@code image} halved until its long edge is at most {@link #PREVIEW_EDGE}, for use as
+   * the overview of a lazily rendered image; {@code image} itself if it is already that small
+   */
+  static ImageBuffer overviewOf(ImageBuffer image) {
+    ImageBuffer overview = image;
+    while (Math.max(overview.getWidth(), overview.getHeight()) > PREVIEW_EDGE) {
+      overview = ImagePyramid.halve(overview);
+    }
+    return overview;
+  }
+
+  /**
+   * Task that runs a {@link Decoder} on the loader's worker and doubles as its
+   * {@link ProgressMonitor}; {@code isCancelled()} is shared with {@link Task}.
+   */
+  private static final class LoadTask extends Task<LoadedImage> implements ProgressMonitor {
+
+    private final Decoder decoder;
+
+    LoadTask(File file, PreviewListener previewListener) {
+      this.decoder = new Decoder(file, this, (overview, width, height) -> {
+        Image preview = AppImageContext.wrap(overview);
+        Platform.runLater(() -> previewListener.onPreview(preview, width, height));
+      });
+      updateMessage(I18n.get("status.loading") + " " + file.getName());
+    }
+
+    @Override
+    protected LoadedImage call() throws IOException {
+      return decoder.decode();
+    }
+
+    @Override
+    protected void cancelled() {
+      decoder.abort();
+    }
+
+    @Override
+    public void progress(double fraction) {
+      updateProgress(fraction, 1.0);
+    }
+  }
+
+  /**
+   * Decodes one file on the calling thread, the way {@link #load} does on its worker, reporting
+   * to a {@link ProgressMonitor} rather than a {@link Task} so it also runs without the FX toolkit.
+   */
+  static final class Decoder {
+
+    private final File file;
+    private final ProgressMonitor monitor;
+    private final OverviewListener overviewListener;
+    private volatile ImageReader reader;
+
+    /**
+     * Receives the subsampled overview of a large image on the decoding thread, before the
+     * full-resolution pixels are decoded.
+     */
+    @FunctionalInterface
+    interface OverviewListener {
+
+      void onOverview(ImageBuffer overview, int width, int height);
+    }
+
+    Decoder(File file, ProgressMonitor monitor, OverviewListener overviewListener) {
+      this.file = file;
+      this.monitor = monitor;
+      this.overviewListener = overviewListener;
+    }
+
+    /**
+     * @return the decoded image, or null if no {@link ImageReader} understands the file or the
+     * monitor was cancelled
+     */
+    LoadedImage decode() throws IOException {
+      ImageInputStream in = ImageIO.createImageInputStream(file);
+      if (in == null) {
+        throw new IOException("Cannot open " + file);
+      }
+      LoadedImage loaded = null;
+      try {
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+        if (!readers.hasNext()) {
+          return null;
+        }
+        reader = readers.next();
+        reader.setInput(in, false, true);
+        loaded = decode(reader, in);
+        return loaded;
+      } finally {
+        // A lazily decoded image keeps reading from the file; its tile source closes it
+        if (loaded == null || loaded.image().getBackingBuffer() != null) {
+          if (reader != null) {
+            reader.dispose();
+          }
+          in.close();
+        }
+      }
+    }
+
+    /**
+     * Makes a decode in progress on another thread stop as soon as it can.
+     */
+    void abort() {
+      ImageReader current = reader;
+      if (current != null) {
+        current.abort();
+      }
+    }
+
+    private LoadedImage decode(ImageReader reader, ImageInputStream in) throws IOException {
+      int width = reader.getWidth(0);
+      int height = reader.getHeight(0);
+      int longEdge = Math.max(width, height);
+      ImageBuffer overview = null;
+      if (longEdge > PREVIEW_EDGE) {
+        int period = (longEdge + PREVIEW_EDGE - 1) / PREVIEW_EDGE;
+        ImageReadParam param = reader.getDefaultReadParam();
+        param.setSourceSubsampling(period, period, 0, 0);
+        BufferedImage subsampled = reader.read(0, param);
+        overview = ImageBuffer.allocate(subsampled.getWidth(), subsampled.getHeight());
+        copyBand(subsampled, 0, overview, 0, overview.getWidth(), overview.getHeight(),
+          new int[overview.getWidth() * overview.getHeight()]);
+        if (monitor.isCancelled()) {
+          return null;
+        }
+        overviewListener.onOverview(overview, width, height);
+      }
+      if (longEdge > MAX_BUFFER_EDGE || (long) width * height > MAX_BUFFER_PIXELS) {
+        TiledImage tiled = TiledImage.create(width, height, TiledImage.DEFAULT_TILE_SIZE,
+          new RegionTileSource(in, reader));
+        return new LoadedImage(tiled, overview);
+      }
+
+      ImageBuffer image = ImageBuffer.allocate(width, height);
+      int bandRows = Math.max(1, Math.min(height, BAND_PIXELS / width));
+      int[] row = new int[width * bandRows];
+      if (supportsBandedDecode(reader)) {
+        ImageReadParam param = reader.getDefaultReadParam();
+        for (int y = 0; y < height && !monitor.isCancelled(); y += bandRows) {
+          int rows = Math.min(bandRows, height - y);
+          param.setSourceRegion(new Rectangle(0, y, width, rows));
+          BufferedImage band = reader.read(0, param);
+          copyBand(band, 0, image, y, width, rows, row);
+          monitor.progress((double) (y + rows) / height);
+        }
+      } else {
+        // Decoding is the slow part; copying out is reported as the last 10%.
+        reader.addIIOReadProgressListener(new DecodeProgress(monitor));
+        BufferedImage decoded = reader.read(0);
+        for (int y = 0; y < height && !monitor.isCancelled(); y += bandRows) {
+          int rows = Math.min(bandRows, height - y);
+          copyBand(decoded, y, image, y, width, rows, row);
+          monitor.progress(0.9 + 0.1 * (y + rows) / height);
+        }
+      }
+      return monitor.isCancelled() ? null : new LoadedImage(TiledImage.of(image), null);
+    }
+
+    private static boolean supportsBandedDecode(ImageReader reader) throws IOException {
+      String format = reader.getFormatName().toLowerCase(Locale.ROOT);
+      return reader.isImageTiled(0) || format.startsWith("tif");
+    }
+
+    private static void copyBand(BufferedImage src, int srcY, ImageBuffer dst, int dstY,
+      int width, int rows, int[] buffer) {
+      src.getRGB(0, srcY, width, rows, buffer, 0, width);
+      ImageBuffer.premultiply(buffer, 0, width * rows);
+      dst.setPixels(0, dstY, width, rows, buffer, 0, width);
+    }
+  }
+
+  /**
+   * Forwards ImageIO decode progress, as the first 90%, to the monitor.
+   */
+  private static final class DecodeProgress implements IIOReadProgressListener {
+
+    private final ProgressMonitor monitor;
+
+    DecodeProgress(ProgressMonitor monitor) {
+      this.monitor = monitor;
+    }
+
+    @Override
+    public void imageProgress(ImageReader source, float percentageDone) {
+      monitor.progress(0.9 * percentageDone / 100);
+    }
+
+    @Override
+    public void sequenceStarted(ImageReader source, int minIndex) {
+    }
+
+    @Override
+    public void sequenceComplete(ImageReader source) {
+    }
+
+    @Override
+    public void imageStarted(ImageReader source, int imageIndex) {
+    }
+
+    @Override
+    public void imageComplete(ImageReader source) {
+    }
+
+    @Override
+    public void thumbnailStarted(ImageReader source, int imageIndex, int thumbnailIndex) {
+    }
+
+    @Override
+    public void thumbnailProgress(ImageReader source, float percentageDone) {
+    }
+
+    @Override
+    public void thumbnailComplete(ImageReader source) {
+    }
+
+    @Override
+    public void readAborted(ImageReader source) {
+    }
+  }
+}
@@ -0,0 +1,278 @@
+package io.distorio.app;
+
+import io.distorio.operation.api.ProgressMonitor;
+import io.distorio.operation.api.TiledImage;
+import io.distorio.ui.common.I18n;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javafx.concurrent.Task;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelReader;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.event.IIOWriteProgressListener;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * Encodes and writes images on a background thread.
+ * <p>
+ * The FX pixels are copied straight into the {@link DataBufferInt} of a single
+ * {@link BufferedImage} of the right type; formats without alpha are flattened onto white during
+ * that copy. The encoder writes to a temporary file next to the target, which is then renamed over
+ * the target, so a failed or cancelled save never leaves a truncated file behind.
+ * <p>
+ * The image must not be modified while it is being saved. Operations always publish a new
+ * {@link Image}, so the one handed to {@link #save} stays stable.
+ */
+public class ImageSaver {
+
+  /**
+   * Formats whose writers reject or mangle an alpha channel.
+   */
+  private static final Set<String> OPAQUE_FORMATS = Set.of("jpg", "jpeg", "bmp", "wbmp");
+
+  /**
+   * Rows copied between progress updates and cancellation checks.
+   */
+  private static final int BAND_ROWS = 256;
+
+  private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+    Thread thread = new Thread(r, "distorio-image-saver");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /**
+   * Starts writing {@code image} to {@code file} as {@code format}. The task's value is the file
+   * that was written.
+   */
+  public Task<File> save(Image image, File file, String format) {
+    SaveTask task = new SaveTask(image, null, file, format.toLowerCase(Locale.ROOT));
+    worker.execute(task);
+    return task;
+  }
+
+  /**
+   * Starts writing a tiled image. Its tiles are assembled into one buffer on the worker first, so
+   * this fails for images too large for a single {@link io.distorio.operation.api.ImageBuffer}.
+   */
+  public Task<File> save(TiledImage image, File file, String format) {
+    SaveTask task = new SaveTask(null, image, file, format.toLowerCase(Locale.ROOT));
+    worker.execute(task);
+    return task;
+  }
+
+  /**
+   * Copies FX pixels into an ARGB (or RGB, flattened onto white) {@link BufferedImage}.
+   */
+  private static BufferedImage toBufferedImage(Image image, boolean alpha,
+    ProgressMonitor monitor) {
+    int width = (int) image.getWidth();
+    int height = (int) image.getHeight();
+    BufferedImage out = new BufferedImage(width, height,
+      alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+    int[] data = ((DataBufferInt) out.getRaster().getDataBuffer()).getData();
+    PixelReader reader = image.getPixelReader();
+    for (int y = 0; y < height; y += BAND_ROWS) {
+      if (monitor.isCancelled()) {
+        return null;
+      }
+      int rows = Math.min(BAND_ROWS, height - y);
+      int offset = y * width;
+      if (alpha) {
+        reader.getPixels(0, y, width, rows, PixelFormat.getIntArgbInstance(), data, offset, width);
+      } else {
+        // Premultiplied colour over white is c' + (255 - a) per channel: no division needed.
+        reader.getPixels(0, y, width, rows, PixelFormat.getIntArgbPreInstance(), data, offset,
+          width);
+        for (int i = offset, end = offset + rows * width; i < end; i++) {
+          int p = data[i];
+          int inv = 255 - (p >>> 24);
+          if (inv != 0) {
+            data[i] = (((p >> 16) & 0xFF) + inv) << 16 | (((p >> 8) & 0xFF) + inv) << 8
+              | ((p & 0xFF) + inv);
+          }
+        }
+      }
+    }
+    return out;
+  }
+
+  /**
+   * Task that runs an {@link Encoder} on the saver's worker and doubles as its
+   * {@link ProgressMonitor}; {@code isCancelled()} is shared with {@link Task}.
+   */
+  private static final class SaveTask extends Task<File> implements ProgressMonitor {
+
+    private final Encoder encoder;
+
+    SaveTask(Image image, TiledImage tiles, File file, String format) {
+      this.encoder = new Encoder(image, tiles, file, format, this);
+      updateMessage(I18n.get("status.saving") + " " + file.getName());
+    }
+
+    @Override
+    protected File call() throws IOException {
+      return encoder.encode();
+    }
+
+    @Override
+    protected void cancelled() {
+      encoder.abort();
+    }
+
+    @Override
+    public void progress(double fraction) {
+      updateProgress(fraction, 1.0);
+    }
+  }
+
+  /**
+   * Writes one image on the calling thread, the way {@link #save} does on its worker, reporting
+   * to a {@link ProgressMonitor} rather than a {@link Task} so it also runs without the FX toolkit.
+   */
+  static final class Encoder {
+
+    private final Image image;
+    private final TiledImage tiles;
+    private final File file;
+    private final String format;
+    private final ProgressMonitor monitor;
+    private volatile ImageWriter writer;
+
+    /**
+     * @param image  the image to write, or null to write {@code tiles}
+     * @param format lower-case ImageIO format name
+     */
+    Encoder(Image image, TiledImage tiles, File file, String format, ProgressMonitor monitor) {
+      this.image = image;
+      this.tiles = tiles;
+      this.file = file;
+      this.format = format;
+      this.monitor = monitor;
+    }
+
+    /**
+     * @return the file written, or null if the monitor was cancelled
+     */
+    File encode() throws IOException {
+      Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+      if (!writers.hasNext()) {
+        throw new IOException("No image writer for format '" + format + "'");
+      }
+      Image source = image != null ? image : AppImageContext.wrap(tiles.toBuffer());
+      BufferedImage pixels = toBufferedImage(source, !OPAQUE_FORMATS.contains(format), monitor);
+      if (pixels == null) {
+        return null;
+      }
+      monitor.progress(0.2);
+
+      Path target = file.toPath().toAbsolutePath();
+      Path temp = Files.createTempFile(target.getParent(), "." + target.getFileName(), ".tmp");
+      boolean moved = false;
+      writer = writers.next();
+      try {
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(temp.toFile())) {
+          writer.setOutput(out);
+          writer.addIIOWriteProgressListener(new EncodeProgress(monitor));
+          writer.write(pixels);
+        }
+        if (monitor.isCancelled()) {
+          return null;
+        }
+        copyPermissions(target, temp);
+        try {
+          Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+          Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        moved = true;
+        return file;
+      } finally {
+        writer.dispose();
+        if (!moved) {
+          Files.deleteIfExists(temp);
+        }
+      }
+    }
+
+    /**
+     * Temp files are created owner-only; give the result the permissions of the file it replaces,
+     * or the usual rw-r--r-- for a new file.
+     */
+    private static void copyPermissions(Path target, Path temp) throws IOException {
+      try {
+        Files.setPosixFilePermissions(temp, Files.exists(target)
+          ? Files.getPosixFilePermissions(target)
+          : PosixFilePermissions.fromString("rw-r--r--"));
+      } catch (UnsupportedOperationException e) {
+        // Not a POSIX file system; the default ACLs already apply
+      }
+    }
+
+    /**
+     * Makes an encode in progress on another thread stop as soon as it can.
+     */
+    void abort() {
+      ImageWriter current = writer;
+      if (current != null) {
+        current.abort();
+      }
+    }
+  }
+
+  /**
+   * Forwards ImageIO encode progress, as the last 80%, to the monitor.
+   */
+  private static final class EncodeProgress implements IIOWriteProgressListener {
+
+    private final ProgressMonitor monitor;
+
+    EncodeProgress(ProgressMonitor monitor) {
+      this.monitor = monitor;
+    }
+
+    @Override
+    public void imageProgress(ImageWriter source, float percentageDone) {
+      monitor.progress(0.2 + 0.8 * percentageDone / 100.0);
+    }
+
+    @Override
+    public void imageStarted(ImageWriter source, int imageIndex) {
+    }
+
+    @Override
+    public void imageComplete(ImageWriter source) {
+    }
+
+    @Override
+    public void thumbnailStarted(ImageWriter source, int imageIndex, int thumbnailIndex) {
+    }
+
+    @Override
+    public void thumbnailProgress(ImageWriter source, float percentageDone) {
+    }
+
+    @Override
+    public void thumbnailComplete(ImageWriter source) {
+    }
+
+    @Override
+    public void writeAborted(ImageWriter source) {
+    }
+  }
+}
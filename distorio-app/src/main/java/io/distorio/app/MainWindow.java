@@ -1,33 +1,40 @@
 package io.distorio.app;
 
+import io.distorio.operation.api.ImageBuffer;
 import io.distorio.operation.api.ImageOperation;
 import io.distorio.operation.api.OperationRegistry;
+import io.distorio.operation.api.TiledImage;
 import io.distorio.ui.common.I18n;
 import io.distorio.ui.common.IconUtil;
-import java.awt.Color;
-import java.awt.Graphics2D;
-import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
 import java.util.Set;
 import javafx.application.Platform;
-import javafx.embed.swing.SwingFXUtils;
+import javafx.beans.InvalidationListener;
+import javafx.beans.binding.Bindings;
+import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
+import javafx.geometry.Bounds;
+import javafx.geometry.Point2D;
 import javafx.geometry.Pos;
 import javafx.scene.Cursor;
+import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.Button;
 import javafx.scene.control.ButtonBar;
 import javafx.scene.control.ButtonType;
+import javafx.scene.control.CheckMenuItem;
 import javafx.scene.control.Label;
 import javafx.scene.control.Menu;
 import javafx.scene.control.MenuBar;
 import javafx.scene.control.MenuItem;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.RadioMenuItem;
 import javafx.scene.control.ScrollPane;
 import javafx.scene.control.SeparatorMenuItem;
@@ -39,10 +46,14 @@ import javafx.scene.image.ImageView;
 import javafx.scene.image.WritableImage;
 import javafx.scene.input.Clipboard;
 import javafx.scene.input.ClipboardContent;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
 import javafx.scene.input.TransferMode;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Pane;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.Region;
 import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
 import javafx.stage.FileChooser;
@@ -53,6 +64,16 @@ import javax.imageio.ImageIO;
 
 public class MainWindow {
 
+  /**
+   * Size of toolbar and toolbox icons, in logical pixels.
+   */
+  static final double ICON_SIZE = 20;
+
+  /**
+   * Images with a shorter long edge are displayed without a pyramid.
+   */
+  private static final int PYRAMID_MIN_EDGE = 2048;
+
   private final BorderPane root = new BorderPane();
   private final MenuBar menuBar = new MenuBar();
   private final ToolBar toolBar = new ToolBar();
@@ -60,14 +81,35 @@ public class MainWindow {
   private final HBox statusBar = new HBox();
   private final ScrollPane scrollPane = new ScrollPane();
   private final StackPane mainArea = new StackPane();
+  private final List<Button> toolbarButtons = new ArrayList<>();
   private final List<Button> toolboxButtons = new ArrayList<>();
   private final List<ImageOperation> toolboxOperations = new ArrayList<>();
   private final OperationHistory operationHistory = new OperationHistory();
   private final AppImageContext imageContext = new AppImageContext();
   private final ImageView imageView = new ImageView();
+  // Full-resolution tiles drawn over imageView, which shows the overview, for tiled images
+  private final TiledImageView tiledView = new TiledImageView();
+  // Downsampled levels of the displayed image for zoomed-out views; null for small images
+  private DisplayPyramid pyramid;
   private final Pane overlayPane = new Pane();
   private final Slider zoomSlider = new Slider(5, 600, 100);
   private final Label zoomPercentLabel = new Label();
+  private final Label taskLabel = new Label();
+  private final ProgressBar taskProgress = new ProgressBar();
+  private final Button cancelTaskButton = new Button();
+  private final Label previewLabel = new Label();
+  private final OperationExecutor operationExecutor = new OperationExecutor(this::showOperationError);
+  private Task<?> trackedTask;
+  private final PreviewRenderer previewRenderer = new PreviewRenderer();
+  // Operation whose selection the user is still drawing, previewed as it changes; null otherwise
+  private ImageOperation previewOperation;
+  private final ImageLoader imageLoader = new ImageLoader();
+  private final ImageSaver imageSaver = new ImageSaver();
+  private Task<ImageLoader.LoadedImage> loadTask;
+  // Lazily decoded image that keeps its file open until another image is loaded or it is closed
+  private TiledImage openedImage;
+  // Full-resolution size of the displayed image; the ImageView may show a smaller proxy
+  private double imageWidth, imageHeight;
   private final OverlayHelper overlayHelper;
   private final Stage stage;
   private IconMode iconMode = IconMode.ICON_TEXT;
@@ -81,40 +123,41 @@ public class MainWindow {
   private boolean dirty = false;
   public MainWindow(Stage stage) {
     this.stage = stage;
+    operationHistory.setOnReleased(this::refreshCompactedView);
     // Detect Mac OS for shortcut key
     boolean isMac = System.getProperty("os.name").toLowerCase().contains("mac");
     String mod = isMac ? "Meta" : "Ctrl";
     String modSymbol = isMac ? "⌘" : "^";
 
     // Menu bar
-    Menu fileMenu = new Menu(I18n.get("menu.file"));
-    MenuItem openItem = new MenuItem(I18n.get("toolbar.open"));
+    Menu fileMenu = menu("menu.file");
+    MenuItem openItem = menuItem("toolbar.open");
     openItem.setAccelerator(KeyCombination.keyCombination(mod + "+O"));
-    MenuItem closeItem = new MenuItem(I18n.get("toolbar.close"));
+    MenuItem closeItem = menuItem("toolbar.close");
     closeItem.setAccelerator(KeyCombination.keyCombination(mod + "+W"));
-    MenuItem saveItem = new MenuItem(I18n.get("toolbar.save"));
+    MenuItem saveItem = menuItem("toolbar.save");
     saveItem.setAccelerator(KeyCombination.keyCombination(mod + "+S"));
-    MenuItem saveAsItem = new MenuItem(I18n.get("toolbar.saveas"));
+    MenuItem saveAsItem = menuItem("toolbar.saveas");
     saveAsItem.setAccelerator(KeyCombination.keyCombination(mod + "+Shift+S"));
     MenuItem exitItem = new MenuItem("Exit");
     fileMenu.getItems().addAll(openItem, closeItem, new SeparatorMenuItem(), saveItem, saveAsItem,
         new SeparatorMenuItem(), exitItem);
 
-    Menu editMenu = new Menu(I18n.get("menu.edit"));
-    MenuItem undoItem = new MenuItem(I18n.get("toolbar.undo"));
+    Menu editMenu = menu("menu.edit");
+    MenuItem undoItem = menuItem("toolbar.undo");
     undoItem.setAccelerator(KeyCombination.keyCombination(mod + "+Z"));
-    MenuItem redoItem = new MenuItem(I18n.get("toolbar.redo"));
+    MenuItem redoItem = menuItem("toolbar.redo");
     redoItem.setAccelerator(KeyCombination.keyCombination(mod + "+Y"));
-    MenuItem copyItem = new MenuItem(I18n.get("toolbar.copy"));
+    MenuItem copyItem = menuItem("toolbar.copy");
     copyItem.setAccelerator(KeyCombination.keyCombination(mod + "+C"));
-    MenuItem pasteItem = new MenuItem(I18n.get("toolbar.paste"));
+    MenuItem pasteItem = menuItem("toolbar.paste");
     pasteItem.setAccelerator(KeyCombination.keyCombination(mod + "+V"));
     editMenu.getItems().addAll(undoItem, redoItem, new SeparatorMenuItem(), copyItem, pasteItem);
 
     // Replace static tools menu with dynamic
     Menu toolsMenu = buildToolsMenu();
 
-    Menu viewMenu = new Menu(I18n.get("menu.view"));
+    Menu viewMenu = menu("menu.view");
     RadioMenuItem iconOnly = new RadioMenuItem("Icon Only");
     RadioMenuItem iconText = new RadioMenuItem("Icon + Text");
     ToggleGroup iconModeGroup = new ToggleGroup();
@@ -152,11 +195,17 @@ public class MainWindow {
     en.setOnAction(e -> setLanguage("en"));
     zh.setOnAction(e -> setLanguage("zh"));
 
+    CheckMenuItem lazyItem = new CheckMenuItem();
+    lazyItem.textProperty().bind(I18n.text("menu.view.lazy"));
+    lazyItem.setSelected(operationExecutor.isLazy());
+    lazyItem.setOnAction(e -> operationExecutor.setLazy(lazyItem.isSelected()));
+
     viewMenu.getItems().add(new SeparatorMenuItem());
+    viewMenu.getItems().add(lazyItem);
     viewMenu.getItems().add(themeMenu);
     viewMenu.getItems().add(langMenu);
 
-    Menu helpMenu = new Menu(I18n.get("menu.help"));
+    Menu helpMenu = menu("menu.help");
     MenuItem aboutItem = new MenuItem("About");
     helpMenu.getItems().add(aboutItem);
 
@@ -175,7 +224,6 @@ public class MainWindow {
     // handItem is now handled in buildToolsMenu()
 
     // Toolbar with icons
-    List<Button> toolbarButtons = new ArrayList<>();
     Button openBtn = createToolbarButton("toolbar.open", "META-INF/icons/file_open.svg");
     openBtn.setOnAction(e -> handleOpen(stage));
     openBtn.setTooltip(new Tooltip("Open (" + modSymbol + "O)"));
@@ -217,13 +265,20 @@ public class MainWindow {
     toolbox.setAlignment(Pos.TOP_CENTER); // Align buttons to top
     toolbox.setPrefWidth(100); // Make toolbox narrower
 
-    // Status bar (placeholder)
-    statusBar.getChildren().clear();
-    statusBar.getChildren().add(new Label(I18n.get("status.zoom")));
-    statusBar.getChildren().add(zoomSlider);
-    statusBar.getChildren().add(zoomPercentLabel);
-    statusBar.setSpacing(8);
+    // Status bar
+    populateStatusBar();
     statusBar.getStyleClass().add("status-bar");
+    statusBar.setAlignment(Pos.CENTER_LEFT);
+    cancelTaskButton.getStyleClass().add("status-button");
+    cancelTaskButton.setOnAction(e -> {
+      if (trackedTask != null) {
+        trackedTask.cancel();
+      }
+    });
+    taskProgress.setPrefWidth(160);
+    setTaskControlsVisible(false);
+    previewLabel.setVisible(false);
+    previewLabel.setManaged(false);
     zoomSlider.setValue(100);
     zoomSlider.valueProperty().addListener((obs, oldV, newV) -> {
       setZoom(newV.doubleValue() / 100.0);
@@ -235,7 +290,16 @@ public class MainWindow {
 
     // Use a simple pane as container for better control
     Pane imageContainer = new Pane();
-    imageContainer.getChildren().add(imageView);
+    imageContainer.getChildren().addAll(imageView, tiledView);
+    tiledView.translateXProperty().bind(imageView.translateXProperty());
+    tiledView.translateYProperty().bind(imageView.translateYProperty());
+    InvalidationListener visibleTiles = obs -> updateVisibleTiles();
+    scrollPane.hvalueProperty().addListener(visibleTiles);
+    scrollPane.vvalueProperty().addListener(visibleTiles);
+    scrollPane.viewportBoundsProperty().addListener(visibleTiles);
+    imageContainer.layoutBoundsProperty().addListener(visibleTiles);
+    imageView.translateXProperty().addListener(visibleTiles);
+    imageView.translateYProperty().addListener(visibleTiles);
 
     scrollPane.setContent(imageContainer);
     scrollPane.setFitToWidth(false);
@@ -339,6 +403,10 @@ public class MainWindow {
         double w = Math.abs(selectionEndX - selectionStartX);
         double h = Math.abs(selectionEndY - selectionStartY);
         showSelectionRect(x, y, w, h);
+        if (previewOperation != null) {
+          selectFromOverlay(x, y, w, h);
+          requestPreview();
+        }
       }
     });
     overlayPane.setOnMouseReleased(e -> {
@@ -348,8 +416,8 @@ public class MainWindow {
         double y = Math.min(selectionStartY, selectionEndY);
         double w = Math.abs(selectionEndX - selectionStartX);
         double h = Math.abs(selectionEndY - selectionStartY);
-        imageContext.setSelection(x, y, w, h);
-        // TODO: notify current operation of selection
+        selectFromOverlay(x, y, w, h);
+        requestPreview();
       }
     });
 
@@ -363,6 +431,18 @@ public class MainWindow {
     // Scene
     Scene scene = new Scene(root, 1200, 800);
     stage.setScene(scene);
+    scene.addEventFilter(KeyEvent.KEY_PRESSED, e -> {
+      if (previewOperation == null) {
+        return;
+      }
+      if (e.getCode() == KeyCode.ENTER) {
+        applyPreview();
+        e.consume();
+      } else if (e.getCode() == KeyCode.ESCAPE) {
+        clearOverlay();
+        e.consume();
+      }
+    });
 
     // Drag-and-drop support for image files
     mainArea.setOnDragOver(event -> {
@@ -381,32 +461,8 @@ public class MainWindow {
       if (db.hasFiles()) {
         for (File file : db.getFiles()) {
           if (isImageFile(file)) {
-            try {
-              BufferedImage bufferedImage = ImageIO.read(file);
-              if (bufferedImage != null) {
-                Image img = SwingFXUtils.toFXImage(bufferedImage, null);
-                imageContext.setImage(img);
-                imageContext.setImageFile(file);
-                imageContext.setSelection(0, 0, 0, 0);
-                updateImageView();
-                clearOverlay();
-                success = true;
-              } else {
-                // handle error: not a supported image
-                Alert alert = new Alert(AlertType.ERROR);
-                alert.setTitle("Open Image Error");
-                alert.setHeaderText("Unsupported Image Format");
-                alert.setContentText("The dropped file could not be opened as an image.");
-                alert.showAndWait();
-              }
-            } catch (Exception ex) {
-              ex.printStackTrace();
-              Alert alert = new Alert(AlertType.ERROR);
-              alert.setTitle("Open Image Error");
-              alert.setHeaderText("Failed to open image");
-              alert.setContentText("An error occurred while opening the dropped image file.\n" + ex.getMessage());
-              alert.showAndWait();
-            }
+            loadImage(file, false);
+            success = true;
             break;
           }
         }
@@ -425,222 +481,232 @@ public class MainWindow {
     stage.setOnCloseRequest(event -> {
       if (!confirmDiscardUnsavedChanges()) {
         event.consume(); // Prevent window from closing
+      } else {
+        operationHistory.close();
       }
     });
   }
 
   private Button createToolbarButton(String i18nKey, String iconName) {
-    Button btn;
-    if (iconMode == IconMode.ICON_ONLY) {
-      btn = new Button(null, IconUtil.icon(iconName, 20));
-      btn.getStyleClass().add("toolbar-button-icon-only");
-    } else {
-      btn = new Button(I18n.get(i18nKey), IconUtil.icon(iconName, 20));
-      btn.getStyleClass().add("toolbar-button");
-    }
+    Button btn = new Button(null, IconUtil.icon(iconName, ICON_SIZE));
+    btn.textProperty().bind(I18n.text(i18nKey));
+    OperationButtonFactory.applyIconMode(btn, iconMode, "toolbar-button");
     return btn;
   }
 
+  private static Menu menu(String i18nKey) {
+    Menu menu = new Menu();
+    menu.textProperty().bind(I18n.text(i18nKey));
+    return menu;
+  }
+
+  private static MenuItem menuItem(String i18nKey) {
+    MenuItem item = new MenuItem();
+    item.textProperty().bind(I18n.text(i18nKey));
+    return item;
+  }
+
+  /**
+   * Switches every toolbar and toolbox button between icon only and icon with text, in place.
+   */
   private void setIconMode(IconMode mode) {
     this.iconMode = mode;
-    // Update toolbar and toolbox using dynamic methods
-    rebuildToolbar();
-    buildToolbox();
+    for (Button btn : toolbarButtons) {
+      OperationButtonFactory.applyIconMode(btn, mode, "toolbar-button");
+    }
+    OperationButtonFactory.applyIconMode(handButton, mode, "toolbox-button");
+    for (Button btn : toolboxButtons) {
+      OperationButtonFactory.applyIconMode(btn, mode, "toolbox-button");
+    }
   }
 
   private void setTheme(ThemeManager.Theme theme) {
     ThemeManager.setTheme(theme);
   }
 
+  /**
+   * Switches the language; every label is bound to {@link I18n#text} and follows.
+   */
   private void setLanguage(String lang) {
     if (lang.equals("en")) {
       I18n.setLocale(Locale.ENGLISH);
     } else if (lang.equals("zh")) {
       I18n.setLocale(Locale.CHINESE);
     }
-
-    // Rebuild all UI components using dynamic methods
-    rebuildAllUI();
   }
 
-  /**
-   * Rebuilds all UI components after language change
-   */
-  private void rebuildAllUI() {
-    // Rebuild menu bar
-    rebuildMenuBar();
-
-    // Rebuild toolbar
-    rebuildToolbar();
-
-    // Rebuild toolbox
-    buildToolbox();
-
-    // Update status bar
-    statusBar.getChildren().clear();
-    statusBar.getChildren().add(new Label(I18n.get("status.zoom")));
+  private void populateStatusBar() {
+    Label zoomLabel = new Label();
+    zoomLabel.textProperty().bind(I18n.text("status.zoom"));
+    statusBar.getChildren().add(zoomLabel);
     statusBar.getChildren().add(zoomSlider);
     statusBar.getChildren().add(zoomPercentLabel);
+    Region spacer = new Region();
+    HBox.setHgrow(spacer, Priority.ALWAYS);
+    cancelTaskButton.textProperty().bind(I18n.text("status.cancel"));
+    statusBar.getChildren().addAll(spacer, previewLabel, taskLabel, taskProgress,
+      cancelTaskButton);
     statusBar.setSpacing(8);
-    updateZoomPercentLabel();
   }
 
   /**
-   * Rebuilds the menu bar with current language
+   * Shows the message and progress of a background task in the status bar until it finishes.
+   * The cancel button cancels whichever task is tracked last.
    */
-  private void rebuildMenuBar() {
-    menuBar.getMenus().clear();
-
-    // File menu
-    Menu fileMenu = new Menu(I18n.get("menu.file"));
-    MenuItem openItem = new MenuItem(I18n.get("toolbar.open"));
-    MenuItem closeItem = new MenuItem(I18n.get("toolbar.close"));
-    MenuItem saveItem = new MenuItem(I18n.get("toolbar.save"));
-    MenuItem saveAsItem = new MenuItem(I18n.get("toolbar.saveas"));
-    MenuItem exitItem = new MenuItem("Exit");
-    fileMenu.getItems().addAll(openItem, closeItem, new SeparatorMenuItem(), saveItem, saveAsItem,
-        new SeparatorMenuItem(), exitItem);
-
-    // Edit menu
-    Menu editMenu = new Menu(I18n.get("menu.edit"));
-    MenuItem undoItem = new MenuItem(I18n.get("toolbar.undo"));
-    MenuItem redoItem = new MenuItem(I18n.get("toolbar.redo"));
-    MenuItem copyItem = new MenuItem(I18n.get("toolbar.copy"));
-    MenuItem pasteItem = new MenuItem(I18n.get("toolbar.paste"));
-    editMenu.getItems().addAll(undoItem, redoItem, new SeparatorMenuItem(), copyItem, pasteItem);
-
-    // Tools menu (dynamic)
-    Menu toolsMenu = buildToolsMenu();
+  private void trackTask(Task<?> task) {
+    trackedTask = task;
+    taskLabel.textProperty().bind(task.messageProperty());
+    taskProgress.progressProperty().bind(task.progressProperty());
+    setTaskControlsVisible(true);
+    task.runningProperty().addListener((obs, wasRunning, running) -> {
+      if (!running && trackedTask == task) {
+        trackedTask = null;
+        taskLabel.textProperty().unbind();
+        taskProgress.progressProperty().unbind();
+        setTaskControlsVisible(false);
+      }
+    });
+  }
 
-    // View menu
-    Menu viewMenu = new Menu(I18n.get("menu.view"));
-    RadioMenuItem iconOnly = new RadioMenuItem("Icon Only");
-    RadioMenuItem iconText = new RadioMenuItem("Icon + Text");
-    ToggleGroup iconModeGroup = new ToggleGroup();
-    iconOnly.setToggleGroup(iconModeGroup);
-    iconText.setToggleGroup(iconModeGroup);
-    if (iconMode == IconMode.ICON_ONLY) {
-      iconOnly.setSelected(true);
-    } else {
-      iconText.setSelected(true);
+  private void setTaskControlsVisible(boolean visible) {
+    for (Node node : List.of(taskLabel, taskProgress, cancelTaskButton)) {
+      node.setVisible(visible);
+      node.setManaged(visible);
     }
-    viewMenu.getItems().addAll(iconOnly, iconText);
-    iconOnly.setOnAction(e -> setIconMode(IconMode.ICON_ONLY));
-    iconText.setOnAction(e -> setIconMode(IconMode.ICON_TEXT));
+  }
 
-    // Theme switching
-    Menu themeMenu = new Menu("Theme");
-    RadioMenuItem lightTheme = new RadioMenuItem("Light");
-    RadioMenuItem darkTheme = new RadioMenuItem("Dark");
-    RadioMenuItem systemTheme = new RadioMenuItem("System");
-    ToggleGroup themeGroup = new ToggleGroup();
-    lightTheme.setToggleGroup(themeGroup);
-    darkTheme.setToggleGroup(themeGroup);
-    systemTheme.setToggleGroup(themeGroup);
-    ThemeManager.Theme currentTheme = ThemeManager.getCurrentTheme();
-    if (currentTheme == ThemeManager.Theme.LIGHT) {
-      lightTheme.setSelected(true);
-    } else if (currentTheme == ThemeManager.Theme.DARK) {
-      darkTheme.setSelected(true);
-    } else {
-      systemTheme.setSelected(true);
+  private void handleOperation(ImageOperation op) {
+    System.out.println("Operation invoked: " + op.getMetadata().getDisplayName());
+    if (operationExecutor.isRunning()) {
+      return; // one operation at a time; the status bar shows the running one
     }
-    themeMenu.getItems().addAll(lightTheme, darkTheme, systemTheme);
-    lightTheme.setOnAction(e -> setTheme(ThemeManager.Theme.LIGHT));
-    darkTheme.setOnAction(e -> setTheme(ThemeManager.Theme.DARK));
-    systemTheme.setOnAction(e -> setTheme(ThemeManager.Theme.SYSTEM));
-
-    // Language switching
-    Menu langMenu = new Menu("Language");
-    RadioMenuItem en = new RadioMenuItem("English");
-    RadioMenuItem zh = new RadioMenuItem("中文");
-    ToggleGroup langGroup = new ToggleGroup();
-    en.setToggleGroup(langGroup);
-    zh.setToggleGroup(langGroup);
-    if (I18n.getCurrentLocale().getLanguage().equals("zh")) {
-      zh.setSelected(true);
-    } else {
-      en.setSelected(true);
+    if (op.prepare(imageContext)) {
+      submitOperation(op);
+    } else if (imageContext.hasImage()) {
+      startPreview(op);
     }
-    langMenu.getItems().addAll(en, zh);
-    en.setOnAction(e -> setLanguage("en"));
-    zh.setOnAction(e -> setLanguage("zh"));
-
-    viewMenu.getItems().add(new SeparatorMenuItem());
-    viewMenu.getItems().add(themeMenu);
-    viewMenu.getItems().add(langMenu);
-
-    // Help menu
-    Menu helpMenu = new Menu(I18n.get("menu.help"));
-    MenuItem aboutItem = new MenuItem("About");
-    helpMenu.getItems().add(aboutItem);
-
-    menuBar.getMenus().addAll(fileMenu, editMenu, toolsMenu, viewMenu, helpMenu);
+  }
 
-    // Reattach menu item actions
-    openItem.setOnAction((ActionEvent e) -> handleOpen(null)); // TODO: pass stage reference
-    undoItem.setOnAction((ActionEvent e) -> handleUndo());
-    redoItem.setOnAction((ActionEvent e) -> handleRedo());
+  private void submitOperation(ImageOperation op) {
+    Task<AppImageContext> task = operationExecutor.submit(op, imageContext, undo -> {
+      if (undo != null) {
+        operationHistory.push(op, undo);
+        dirty = true;
+      }
+      updateImageView(); // Update display after operation
+      updateWindowTitle();
+    });
+    if (task != null) {
+      trackTask(task);
+    }
   }
 
   /**
-   * Rebuilds the toolbar with current language and icon mode
+   * Lets the user draw the selection {@code op} is missing on the overlay, previewing the result in
+   * the background as it changes. Enter applies the operation, Escape cancels.
    */
-  private void rebuildToolbar() {
-    toolBar.getItems().clear();
-    List<Button> toolbarButtons = new ArrayList<>();
+  private void startPreview(ImageOperation op) {
+    clearOverlay();
+    previewOperation = op;
+    previewLabel.textProperty().bind(
+      Bindings.concat(op.getMetadata().getDisplayName() + ": ", I18n.text("status.preview")));
+    previewLabel.setVisible(true);
+    previewLabel.setManaged(true);
+    showOverlay();
+  }
 
-    Button openBtn = createToolbarButton("toolbar.open", "META-INF/icons/file_open.svg");
-    openBtn.setOnAction(e -> handleOpen(null)); // TODO: pass stage reference
-    toolbarButtons.add(openBtn);
-    toolbarButtons.add(createToolbarButton("toolbar.close", "META-INF/icons/file_close.svg"));
-    toolbarButtons.add(createToolbarButton("toolbar.save", "META-INF/icons/save.svg"));
-    toolbarButtons.add(createToolbarButton("toolbar.saveas", "META-INF/icons/save_as.svg"));
-    toolbarButtons.add(createToolbarButton("toolbar.copy", "META-INF/icons/copy.svg"));
-    toolbarButtons.add(createToolbarButton("toolbar.paste", "META-INF/icons/paste.svg"));
+  /**
+   * Renders a new preview for the current selection; requests made while one renders coalesce.
+   */
+  private void requestPreview() {
+    if (previewOperation == null || !imageContext.hasImage()) {
+      return;
+    }
+    // Roughly viewport resolution: the image as displayed, but no more than fills the viewport
+    Bounds viewport = scrollPane.getViewportBounds();
+    double displayed = Math.max(imageWidth, imageHeight) * zoom;
+    int edge = (int) Math.ceil(Math.min(displayed,
+      Math.max(viewport.getWidth(), viewport.getHeight())));
+    previewRenderer.request(previewOperation, imageContext, Math.max(1, edge),
+      overlayHelper::showPreview);
+  }
 
-    // Undo/Redo buttons
-    Button undoBtn = createToolbarButton("toolbar.undo", "META-INF/icons/undo.svg");
-    Button redoBtn = createToolbarButton("toolbar.redo", "META-INF/icons/redo.svg");
-    undoBtn.setOnAction(e -> handleUndo());
-    redoBtn.setOnAction(e -> handleRedo());
-    toolbarButtons.add(undoBtn);
-    toolbarButtons.add(redoBtn);
+  private void applyPreview() {
+    ImageOperation op = previewOperation;
+    if (operationExecutor.isRunning() || !op.prepare(imageContext)) {
+      return;
+    }
+    submitOperation(op);
+    // The operation has its own copy of the selection, which no longer fits the new image
+    imageContext.setSelection(0, 0, 0, 0);
+    clearOverlay();
+  }
 
-    toolBar.getItems().setAll(toolbarButtons);
+  /**
+   * Sets the selection of the image from a rectangle in overlay coordinates, clipped to the image.
+   */
+  private void selectFromOverlay(double x, double y, double w, double h) {
+    Point2D from = imageView.sceneToLocal(overlayPane.localToScene(x, y));
+    Point2D to = imageView.sceneToLocal(overlayPane.localToScene(x + w, y + h));
+    double x1 = Math.max(0, Math.min(imageWidth, from.getX() / zoom));
+    double y1 = Math.max(0, Math.min(imageHeight, from.getY() / zoom));
+    double x2 = Math.max(0, Math.min(imageWidth, to.getX() / zoom));
+    double y2 = Math.max(0, Math.min(imageHeight, to.getY() / zoom));
+    imageContext.setSelection(x1, y1, x2 - x1, y2 - y1);
   }
 
-  private void handleOperation(ImageOperation op) {
-    // TODO: implement operation preparation, preview, apply, and undo/redo logic
-    System.out.println("Operation invoked: " + op.getMetadata().getDisplayName());
-    boolean ready = op.prepare(imageContext);
-    if (ready) {
-      op.preview(imageContext); // For now, just call preview
-      op.apply(imageContext);
-      operationHistory.push(op);
-      updateImageView(); // Update display after operation
-      dirty = true;
-      updateWindowTitle();
-    } else {
-      // TODO: show preparation UI (e.g., selection, drag handles)
-    }
+  private void showOperationError(Throwable error) {
+    error.printStackTrace();
+    Alert alert = new Alert(AlertType.ERROR);
+    alert.setTitle("Operation Error");
+    alert.setHeaderText("Failed to apply operation");
+    alert.setContentText(String.valueOf(error.getMessage()));
+    alert.showAndWait();
   }
 
+  /**
+   * Restores the image from before the last operation in the background, then lets the operation
+   * know through {@link ImageOperation#undo}.
+   */
   private void handleUndo() {
-    ImageOperation op = operationHistory.undo();
-    if (op != null) {
-      op.undo(imageContext);
-      updateImageView();
-      System.out.println("Undo: " + op.getMetadata().getDisplayName());
+    OperationHistory.Entry entry = operationHistory.peekUndo();
+    if (entry == null || operationExecutor.isRunning()) {
+      return;
+    }
+    ImageOperation op = entry.getOperation();
+    String message = I18n.get("status.undoing") + " " + op.getMetadata().getDisplayName();
+    Task<AppImageContext> task = operationExecutor.submit(entry.getDelta(), message, imageContext,
+        redo -> {
+          operationHistory.undone(entry, redo);
+          op.undo(imageContext);
+          updateImageView();
+          dirty = true;
+          updateWindowTitle();
+          System.out.println("Undo: " + op.getMetadata().getDisplayName());
+        });
+    if (task != null) {
+      trackTask(task);
     }
   }
 
   private void handleRedo() {
-    ImageOperation op = operationHistory.redo();
-    if (op != null) {
-      op.redo(imageContext);
-      updateImageView();
-      System.out.println("Redo: " + op.getMetadata().getDisplayName());
+    OperationHistory.Entry entry = operationHistory.peekRedo();
+    if (entry == null || operationExecutor.isRunning()) {
+      return;
+    }
+    ImageOperation op = entry.getOperation();
+    String message = I18n.get("status.redoing") + " " + op.getMetadata().getDisplayName();
+    Task<AppImageContext> task = operationExecutor.submit(entry.getDelta(), message, imageContext,
+        undo -> {
+          operationHistory.redone(entry, undo);
+          op.redo(imageContext);
+          updateImageView();
+          dirty = true;
+          updateWindowTitle();
+          System.out.println("Redo: " + op.getMetadata().getDisplayName());
+        });
+    if (task != null) {
+      trackTask(task);
     }
   }
 
@@ -660,7 +726,10 @@ public class MainWindow {
     Optional<ButtonType> result = alert.showAndWait();
     if (result.isPresent()) {
       if (result.get() == save) {
-        handleSave();
+        Task<File> saveTask = handleSave();
+        if (saveTask != null) {
+          awaitTask(saveTask);
+        }
         return !dirty; // Only proceed if save succeeded
       } else if (result.get() == dontSave) {
         return true;
@@ -669,6 +738,23 @@ public class MainWindow {
     return false; // Cancel or closed dialog
   }
 
+  /**
+   * Runs a nested event loop until {@code task} finishes, so a caller that needs the outcome can
+   * wait without freezing the window.
+   */
+  private void awaitTask(Task<?> task) {
+    if (task.isDone()) {
+      return;
+    }
+    Object loopKey = new Object();
+    task.runningProperty().addListener((obs, wasRunning, running) -> {
+      if (!running) {
+        Platform.exitNestedEventLoop(loopKey, null);
+      }
+    });
+    Platform.enterNestedEventLoop(loopKey);
+  }
+
   private void handleOpen(Stage stage) {
     if (!confirmDiscardUnsavedChanges()) {
       return;
@@ -686,41 +772,98 @@ public class MainWindow {
     );
     File file = fileChooser.showOpenDialog(stage);
     if (file != null) {
-      try {
-        BufferedImage bufferedImage = ImageIO.read(file);
-        if (bufferedImage != null) {
-          Image img = SwingFXUtils.toFXImage(bufferedImage, null);
-          imageContext.setImage(img);
-          imageContext.setImageFile(file);
-          // Calculate initial zoom to fit image in viewport
-          calculateInitialZoom(img);
-          updateImageView();
-          updateWindowTitle();
-          dirty = false;
-          updateWindowTitle();
-        } else {
-          // handle error: not a supported image
-          Alert alert = new Alert(AlertType.ERROR);
-          alert.setTitle("Open Image Error");
-          alert.setHeaderText("Unsupported Image Format");
-          alert.setContentText("The selected file could not be opened as an image.");
-          alert.showAndWait();
-        }
-      } catch (Exception ex) {
-        ex.printStackTrace();
+      loadImage(file, true);
+    }
+  }
+
+  /**
+   * Loads {@code file} in the background. A subsampled preview is displayed as soon as it is
+   * decoded; the context only receives the full-resolution image once loading succeeds.
+   *
+   * @param opened true for File > Open, which fits the zoom to the viewport and clears the dirty
+   *               flag; false for drag-and-drop, which keeps the current zoom
+   */
+  private void loadImage(File file, boolean opened) {
+    operationExecutor.cancel();
+    if (loadTask != null) {
+      loadTask.cancel();
+    }
+    Task<ImageLoader.LoadedImage> task = imageLoader.load(file, (preview, width, height) -> {
+      if (opened) {
+        calculateInitialZoom(width, height);
+      }
+      tiledView.setImage(null, 0);
+      setPyramid(null);
+      showImage(preview, width, height);
+    });
+    loadTask = task;
+    task.setOnSucceeded(e -> {
+      loadTask = null;
+      ImageLoader.LoadedImage loaded = task.getValue();
+      if (loaded == null) {
+        updateImageView(); // drop the preview, if one was shown
+        // handle error: not a supported image
         Alert alert = new Alert(AlertType.ERROR);
         alert.setTitle("Open Image Error");
-        alert.setHeaderText("Failed to open image");
-        alert.setContentText("An error occurred while opening the image file.\n" + ex.getMessage());
+        alert.setHeaderText("Unsupported Image Format");
+        alert.setContentText("The selected file could not be opened as an image.");
         alert.showAndWait();
+        return;
       }
-    }
+      TiledImage pixels = loaded.image();
+      closeOpenedImage();
+      if (pixels.getBackingBuffer() == null) {
+        openedImage = pixels;
+      }
+      imageContext.setTiledImage(pixels, loaded.overview());
+      imageContext.setImageFile(file);
+      imageContext.setSelection(0, 0, 0, 0);
+      operationHistory.clear();
+      if (opened) {
+        // Calculate initial zoom to fit image in viewport
+        calculateInitialZoom(pixels.getWidth(), pixels.getHeight());
+        dirty = false;
+      }
+      updateImageView();
+      clearOverlay();
+      updateWindowTitle();
+    });
+    task.setOnCancelled(e -> {
+      if (loadTask == task) {
+        loadTask = null;
+        updateImageView();
+      }
+    });
+    task.setOnFailed(e -> {
+      loadTask = null;
+      updateImageView();
+      Throwable ex = task.getException();
+      ex.printStackTrace();
+      Alert alert = new Alert(AlertType.ERROR);
+      alert.setTitle("Open Image Error");
+      alert.setHeaderText("Failed to open image");
+      alert.setContentText("An error occurred while opening the image file.\n" + ex.getMessage());
+      alert.showAndWait();
+    });
+    trackTask(task);
   }
 
-  private void calculateInitialZoom(Image img) {
-    if (img == null) {
+  /**
+   * Releases the file and cached tiles of the lazily decoded image, if one is open.
+   */
+  private void closeOpenedImage() {
+    if (openedImage == null) {
       return;
     }
+    try {
+      openedImage.close();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+    openedImage = null;
+  }
+
+  private void calculateInitialZoom(double width, double height) {
 
     // Wait for the layout to be updated to get viewport dimensions
     Platform.runLater(() -> {
@@ -728,13 +871,13 @@ public class MainWindow {
       double viewportHeight = scrollPane.getViewportBounds().getHeight();
 
       System.out.println(
-          "Initial zoom calculation - Image: " + img.getWidth() + "x" + img.getHeight() +
+          "Initial zoom calculation - Image: " + width + "x" + height +
               ", Viewport: " + viewportWidth + "x" + viewportHeight);
 
       if (viewportWidth > 0 && viewportHeight > 0) {
         // Calculate zoom to fit image in viewport
-        double scaleX = viewportWidth / img.getWidth();
-        double scaleY = viewportHeight / img.getHeight();
+        double scaleX = viewportWidth / width;
+        double scaleY = viewportHeight / height;
         double fitZoom = Math.min(scaleX, scaleY);
 
         // Set zoom to fit, but not smaller than 5%
@@ -745,7 +888,7 @@ public class MainWindow {
         System.out.println("Calculated zoom: " + zoom + " (fitZoom: " + fitZoom + ")");
 
         // Update the image view with the new zoom
-        updateImageView();
+        setZoom(zoom);
 
         // Force centering after zoom calculation with additional delay
         Platform.runLater(() -> {
@@ -764,11 +907,18 @@ public class MainWindow {
     // Only update the image size, don't call updateImageView()
     Image img = imageView.getImage();
     if (img != null) {
-      double imgW = img.getWidth() * zoom;
-      double imgH = img.getHeight() * zoom;
+      double imgW = imageWidth * zoom;
+      double imgH = imageHeight * zoom;
       imageView.setFitWidth(imgW);
       imageView.setFitHeight(imgH);
     }
+    if (pyramid != null) {
+      Image level = pyramid.levelFor(zoom);
+      if (imageView.getImage() != level) {
+        display(level);
+      }
+    }
+    tiledView.setZoom(zoom);
 
     // After zoom, adjust scroll position to maintain view
     if (oldZoom != zoom) {
@@ -787,8 +937,8 @@ public class MainWindow {
     // Get the viewport dimensions
     double viewportWidth = scrollPane.getViewportBounds().getWidth();
     double viewportHeight = scrollPane.getViewportBounds().getHeight();
-    double imgWidth = img.getWidth() * zoom;
-    double imgHeight = img.getHeight() * zoom;
+    double imgWidth = imageWidth * zoom;
+    double imgHeight = imageHeight * zoom;
 
     // Use hybrid approach: translate for small images, scroll for large images
     if (imgWidth <= viewportWidth && imgHeight <= viewportHeight) {
@@ -836,8 +986,8 @@ public class MainWindow {
 
         double viewportWidth = scrollPane.getViewportBounds().getWidth();
         double viewportHeight = scrollPane.getViewportBounds().getHeight();
-        double imgWidth = img.getWidth() * zoom;
-        double imgHeight = img.getHeight() * zoom;
+        double imgWidth = imageWidth * zoom;
+        double imgHeight = imageHeight * zoom;
 
         // Ensure the container is large enough
         Pane container = (Pane) scrollPane.getContent();
@@ -871,18 +1021,94 @@ public class MainWindow {
   }
 
   private void updateImageView() {
-    Image img = imageContext.getImage();
-    if (img != null) {
-      imageView.setImage(img);
-      // Reapply the current zoom to the new image
-      setZoom(zoom);
-      // Reset translate to 0 and center the image
-      imageView.setTranslateX(0);
-      imageView.setTranslateY(0);
-      centerImageInViewport();
+    imageContext.rewrapCompacted();
+    Image img = imageContext.getDisplayImage();
+    if (imageContext.isTiled()) {
+      TiledImage tiles = imageContext.getTiledImage();
+      ImageBuffer overview = imageContext.getOverview();
+      tiledView.setImage(tiles,
+        overview == null ? 0 : (double) overview.getWidth() / tiles.getWidth());
+      setPyramid(null);
+      showImage(overview == null ? null : AppImageContext.wrap(overview), tiles.getWidth(),
+        tiles.getHeight());
+    } else if (img != null) {
+      tiledView.setImage(null, 0);
+      int width = imageContext.getWidth();
+      int height = imageContext.getHeight();
+      if (pyramid == null || !pyramid.isFor(img)) {
+        boolean large = Math.max(width, height) > PYRAMID_MIN_EDGE;
+        setPyramid(large ? new DisplayPyramid(img, imageContext.getBuffer(), () -> setZoom(zoom))
+          : null);
+      }
+      showImage(img, width, height);
     } else {
-      imageView.setImage(null);
+      tiledView.setImage(null, 0);
+      setPyramid(null);
+      display(null);
+    }
+  }
+
+  /**
+   * Shows the image again once a displayed crop has been compacted, so that the display no longer
+   * keeps the uncropped pixels alive. Unlike {@link #updateImageView()}, the view does not move.
+   */
+  private void refreshCompactedView() {
+    Image old = imageContext.getDisplayImage();
+    if (!imageContext.rewrapCompacted()) {
+      return;
+    }
+    Image img = imageContext.getDisplayImage();
+    if (pyramid != null && pyramid.isFor(old)) {
+      pyramid.rebase(img);
+    }
+    if (imageView.getImage() == old) {
+      display(img);
+    }
+  }
+
+  /**
+   * Puts {@code img} in the image view, limited to the context's viewport if it is the context's
+   * {@link AppImageContext#getDisplayImage() display image}.
+   */
+  private void display(Image img) {
+    imageView.setImage(img);
+    imageView.setViewport(img != null && img == imageContext.getDisplayImage()
+        ? imageContext.getViewport() : null);
+  }
+
+  private void setPyramid(DisplayPyramid next) {
+    if (pyramid != null) {
+      pyramid.cancel();
     }
+    pyramid = next;
+  }
+
+  /**
+   * Tells the tile layer which part of the image is inside the viewport.
+   */
+  private void updateVisibleTiles() {
+    Bounds viewport = scrollPane.getViewportBounds();
+    Bounds content = scrollPane.getContent().getLayoutBounds();
+    double x = scrollPane.getHvalue() * Math.max(0, content.getWidth() - viewport.getWidth());
+    double y = scrollPane.getVvalue() * Math.max(0, content.getHeight() - viewport.getHeight());
+    tiledView.setViewport(x - imageView.getTranslateX(), y - imageView.getTranslateY(),
+      viewport.getWidth(), viewport.getHeight());
+  }
+
+  /**
+   * Displays {@code displayed} at the size of a {@code width x height} image, so a lower
+   * resolution proxy occupies the same area as the full image would.
+   */
+  private void showImage(Image displayed, double width, double height) {
+    imageWidth = width;
+    imageHeight = height;
+    display(displayed);
+    // Reapply the current zoom to the new image
+    setZoom(zoom);
+    // Reset translate to 0 and center the image
+    imageView.setTranslateX(0);
+    imageView.setTranslateY(0);
+    centerImageInViewport();
   }
 
   public void showOverlay() {
@@ -901,6 +1127,10 @@ public class MainWindow {
   }
 
   public void clearOverlay() {
+    previewRenderer.cancel();
+    previewOperation = null;
+    previewLabel.setVisible(false);
+    previewLabel.setManaged(false);
     overlayHelper.clear();
     hideOverlay();
   }
@@ -958,10 +1188,10 @@ public class MainWindow {
    * Builds the tools menu dynamically from registered operations
    */
   private Menu buildToolsMenu() {
-    Menu toolsMenu = new Menu(I18n.get("menu.tools"));
+    Menu toolsMenu = menu("menu.tools");
 
     // Add hand tool (special case - not an operation)
-    MenuItem handItem = new MenuItem(I18n.get("toolbox.hand"));
+    MenuItem handItem = menuItem("toolbox.hand");
     handItem.setOnAction(e -> setHandMode(!handMode));
     toolsMenu.getItems().add(handItem);
 
@@ -985,21 +1215,13 @@ public class MainWindow {
    * Builds the toolbox dynamically from registered operations
    */
   private void buildToolbox() {
-    toolboxButtons.clear();
-    toolboxOperations.clear();
-    toolbox.getChildren().clear();
     toolbox.setAlignment(Pos.TOP_CENTER); // Align buttons to top
     toolbox.setPrefWidth(100); // Make toolbox narrower
 
     // Add hand button (special case - not an operation)
-    if (iconMode == IconMode.ICON_ONLY) {
-      handButton = new Button(null, IconUtil.icon("META-INF/icons/hand.svg", 20));
-      handButton.getStyleClass().add("toolbox-button-icon-only");
-    } else {
-      handButton = new Button(I18n.get("toolbox.hand"),
-          IconUtil.icon("META-INF/icons/hand.svg", 20));
-      handButton.getStyleClass().add("toolbox-button");
-    }
+    handButton = new Button(null, IconUtil.icon("META-INF/icons/hand.svg", ICON_SIZE));
+    handButton.textProperty().bind(I18n.text("toolbox.hand"));
+    OperationButtonFactory.applyIconMode(handButton, iconMode, "toolbox-button");
     handButton.setOnAction(e -> setHandMode(!handMode));
     toolbox.getChildren().add(handButton);
 
@@ -1020,9 +1242,11 @@ public class MainWindow {
     if (!confirmDiscardUnsavedChanges()) {
       return;
     }
+    operationExecutor.cancel();
     imageContext.setImage(null);
     imageContext.setSelection(0, 0, 0, 0);
     imageContext.setImageFile(null);
+    closeOpenedImage();
     updateImageView();
     // Optionally clear operation history or overlays if needed
     operationHistory.clear();
@@ -1078,16 +1302,17 @@ public class MainWindow {
     }
   }
 
-  private void handleSave() {
-    Image img = imageContext.getImage();
-    if (img == null) {
-      return;
+  /**
+   * @return the running save, or null if nothing was saved (no image, or Save As was cancelled)
+   */
+  private Task<File> handleSave() {
+    if (!imageContext.hasImage()) {
+      return null;
     }
     File file = imageContext.getImageFile();
     if (file == null) {
       // No file path, fallback to Save As
-      handleSaveAs();
-      return;
+      return handleSaveAs();
     }
     String ext = "png";
     String fileName = file.getName().toLowerCase();
@@ -1096,24 +1321,44 @@ public class MainWindow {
     } else if (fileName.endsWith(".bmp")) {
       ext = "bmp";
     }
-    try {
-      if ("jpg".equals(ext)) {
-        BufferedImage rgbImage = toBufferedImageNoAlpha(img);
-        ImageIO.write(rgbImage, ext, file);
-      } else {
-        ImageIO.write(SwingFXUtils.fromFXImage(img, null), ext, file);
+    return saveImage(file, ext);
+  }
+
+  /**
+   * Saves in the background. The dirty flag clears only after the file was written, and only if
+   * the image was not changed again while it was being saved.
+   */
+  private Task<File> saveImage(File file, String ext) {
+    Object content = imageContext.getContent();
+    Task<File> task = imageContext.isTiled()
+        ? imageSaver.save(imageContext.getTiledImage(), file, ext)
+        : imageSaver.save(imageContext.getImage(), file, ext);
+    task.setOnSucceeded(e -> {
+      if (task.getValue() == null) {
+        return;
+      }
+      imageContext.setImageFile(file);
+      if (imageContext.getContent() == content) {
+        dirty = false;
       }
-      dirty = false;
       updateWindowTitle();
-    } catch (Exception ex) {
+    });
+    task.setOnFailed(e -> {
+      Throwable ex = task.getException();
       ex.printStackTrace();
-    }
+      Alert alert = new Alert(AlertType.ERROR);
+      alert.setTitle("Save Image Error");
+      alert.setHeaderText("Failed to save image");
+      alert.setContentText("An error occurred while saving the image file.\n" + ex.getMessage());
+      alert.showAndWait();
+    });
+    trackTask(task);
+    return task;
   }
 
-  private boolean handleSaveAs() {
-    Image img = imageContext.getImage();
-    if (img == null) {
-      return false;
+  private Task<File> handleSaveAs() {
+    if (!imageContext.hasImage()) {
+      return null;
     }
     FileChooser fileChooser = new FileChooser();
     fileChooser.setTitle("Save Image As");
@@ -1169,24 +1414,9 @@ public class MainWindow {
       if (!hasExt) {
         file = new File(file.getParent(), file.getName() + "." + ext);
       }
-      try {
-        if ("jpg".equals(ext)) {
-          BufferedImage rgbImage = toBufferedImageNoAlpha(img);
-          ImageIO.write(rgbImage, ext, file);
-        } else {
-          ImageIO.write(SwingFXUtils.fromFXImage(img, null), ext, file);
-        }
-        imageContext.setImageFile(file);
-        updateWindowTitle();
-        dirty = false;
-        updateWindowTitle();
-        return true;
-      } catch (Exception ex) {
-        ex.printStackTrace();
-        return false;
-      }
+      return saveImage(file, ext);
     }
-    return false; // User cancelled the save dialog
+    return null; // User cancelled the save dialog
   }
 
   private void updateWindowTitle() {
@@ -1212,18 +1442,5 @@ public class MainWindow {
         || name.endsWith(".bmp") || name.endsWith(".gif") || name.endsWith(".svg");
   }
 
-  // Helper to convert JavaFX Image to TYPE_INT_RGB BufferedImage (removes alpha)
-  private static BufferedImage toBufferedImageNoAlpha(Image img) {
-    BufferedImage src = SwingFXUtils.fromFXImage(img, null);
-    BufferedImage rgbImage = new BufferedImage(
-        src.getWidth(), src.getHeight(), BufferedImage.TYPE_INT_RGB);
-    Graphics2D g = rgbImage.createGraphics();
-    g.setColor(Color.WHITE); // Fill with white background
-    g.fillRect(0, 0, src.getWidth(), src.getHeight());
-    g.drawImage(src, 0, 0, null);
-    g.dispose();
-    return rgbImage;
-  }
-
   public enum IconMode {ICON_ONLY, ICON_TEXT}
 }
@@ -4,6 +4,9 @@ import io.distorio.operation.api.ImageOperation;
 import io.distorio.operation.api.OperationRegistry;
 import io.distorio.ui.common.IconUtil;
 import javafx.scene.control.Button;
+import javafx.scene.control.ContentDisplay;
+import javafx.scene.control.Label;
+import javafx.scene.image.ImageView;
 
 public class OperationButtonFactory {
 
@@ -17,31 +20,39 @@ public class OperationButtonFactory {
 
   public static Button createButton(ImageOperation op, MainWindow.IconMode mode, ClassLoader providerClassLoader) {
     String iconName = op.getMetadata().getIconPath().isPresent()? op.getMetadata().getIconPath().get() : null;
-    
-    Button btn;
 
+    Button btn = new Button(op.getMetadata().getDisplayName());
+    if (iconName != null) {
+      btn.setGraphic(IconUtil.icon(iconName, MainWindow.ICON_SIZE, providerClassLoader));
+    } else {
+      // Fallback for operations without icons in ICON_ONLY mode
+      btn.setGraphic(new Label("?"));
+    }
+    applyIconMode(btn, mode, "toolbox-button");
+    return btn;
+  }
+
+  /**
+   * Shows the icon of {@code btn} only, or its icon and text, without creating any nodes. The
+   * button gets {@code styleClass}, or {@code styleClass + "-icon-only"} in ICON_ONLY mode.
+   */
+  static void applyIconMode(Button btn, MainWindow.IconMode mode, String styleClass) {
+    String iconOnlyClass = styleClass + "-icon-only";
     if (mode == MainWindow.IconMode.ICON_ONLY) {
-      if (iconName != null) {
-        btn = new Button(null, IconUtil.icon(iconName, 20, providerClassLoader));
-        btn.getStyleClass().add("toolbox-button-icon-only");
-      } else {
-        // Fallback for operations without icons in ICON_ONLY mode
-        btn = new Button("?");
-        btn.getStyleClass().add("toolbox-button-icon-only");
+      btn.setContentDisplay(ContentDisplay.GRAPHIC_ONLY);
+      btn.getStyleClass().remove(styleClass);
+      if (!btn.getStyleClass().contains(iconOnlyClass)) {
+        btn.getStyleClass().add(iconOnlyClass);
       }
     } else {
-      if (iconName != null) {
-        btn = new Button(op.getMetadata().getDisplayName(), IconUtil.icon(iconName, 20, providerClassLoader));
-        btn.getStyleClass().add("toolbox-button");
-      } else {
-        btn = new Button(op.getMetadata().getDisplayName());
-        btn.getStyleClass().add("toolbox-button");
+      // A fallback graphic stands in for a missing icon and is only shown without text
+      boolean hasIcon = btn.getGraphic() instanceof ImageView;
+      btn.setContentDisplay(hasIcon ? ContentDisplay.LEFT : ContentDisplay.TEXT_ONLY);
+      btn.getStyleClass().remove(iconOnlyClass);
+      if (!btn.getStyleClass().contains(styleClass)) {
+        btn.getStyleClass().add(styleClass);
       }
-      // Ensure text is set properly
-      btn.setText(op.getMetadata().getDisplayName());
     }
-
-    return btn;
   }
 
   /**
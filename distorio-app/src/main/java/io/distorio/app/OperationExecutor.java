@@ -0,0 +1,254 @@
+package io.distorio.app;
+
+import io.distorio.operation.api.GeometricOperation;
+import io.distorio.operation.api.ImageBuffer;
+import io.distorio.operation.api.ImageOperation;
+import io.distorio.operation.api.PixelTransform;
+import io.distorio.operation.api.ProgressMonitor;
+import io.distorio.operation.api.Resampler;
+import io.distorio.operation.api.TiledImage;
+import io.distorio.ui.common.I18n;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.concurrent.Task;
+
+/**
+ * Runs {@link ImageOperation#apply}, and undo/redo steps, on a background worker so the FX thread
+ * stays responsive.
+ * <p>
+ * The work is done on a detached copy of the {@link AppImageContext}; the result is published
+ * back to the live context on the FX thread only if it completed, was not cancelled, and the live
+ * image has not been replaced in the meantime. One task runs at a time. After an operation, the
+ * {@link ImageDelta} that undoes it is computed on the worker as well.
+ * <p>
+ * When an operation leaves a tiled image tiled, it is applied a second time to the image's
+ * downsampled overview, so the overview shown beneath the tiles matches the new image.
+ * <p>
+ * In lazy mode ({@link #setLazy}, default {@code -Ddistorio.lazy}), {@link GeometricOperation}s
+ * are not applied at all: the image becomes a {@link TiledImage#transform transformed} view of the
+ * previous one, whose tiles are only rendered when the viewer shows them at full resolution or the
+ * image is saved. Only the overview is resampled right away. Other operations still materialize
+ * the image and run as usual.
+ * <p>
+ * In either mode, a geometric operation that merely crops an image held in a buffer makes the
+ * image a {@link ImageBuffer#view view} of that buffer, and its undo step keeps the uncropped
+ * buffer itself (see {@link ImageDelta.ViewDelta}).
+ */
+public class OperationExecutor {
+
+  private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+    Thread thread = new Thread(r, "distorio-operation");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private final ReadOnlyObjectWrapper<Task<AppImageContext>> currentTask =
+    new ReadOnlyObjectWrapper<>();
+  private final Consumer<Throwable> errorHandler;
+  private volatile boolean lazy = Boolean.getBoolean("distorio.lazy");
+
+  public OperationExecutor(Consumer<Throwable> errorHandler) {
+    this.errorHandler = errorHandler;
+  }
+
+  /**
+   * Starts applying {@code op} to a copy of {@code target}. Must be called on the FX thread.
+   *
+   * @param onApplied runs on the FX thread after the result has been published to {@code target},
+   *                  with the delta that undoes it, or null if the operation left the image as it
+   *                  was
+   * @return the running task, or null if another task is still running
+   */
+  public Task<AppImageContext> submit(ImageOperation op, AppImageContext target,
+    Consumer<ImageDelta> onApplied) {
+    String message = I18n.get("status.applying") + " " + op.getMetadata().getDisplayName();
+    return run(new OperationTask(op, target.copy(), message, lazy), target, onApplied);
+  }
+
+  public boolean isLazy() {
+    return lazy;
+  }
+
+  /**
+   * Whether operations submitted from now on defer geometric operations instead of rendering them.
+   */
+  public void setLazy(boolean lazy) {
+    this.lazy = lazy;
+  }
+
+  /**
+   * Starts applying a history delta to a copy of {@code target}, for undo or redo. Must be called
+   * on the FX thread.
+   *
+   * @param onApplied runs on the FX thread after the result has been published to {@code target},
+   *                  with the delta that reverts this step
+   * @return the running task, or null if another task is still running
+   */
+  public Task<AppImageContext> submit(ImageDelta delta, String message, AppImageContext target,
+    Consumer<ImageDelta> onApplied) {
+    return run(new DeltaTask(delta, target.copy(), message), target, onApplied);
+  }
+
+  private Task<AppImageContext> run(ContextTask task, AppImageContext target,
+    Consumer<ImageDelta> onApplied) {
+    if (isRunning()) {
+      return null;
+    }
+    Object source = target.getContent();
+    task.setOnSucceeded(e -> {
+      currentTask.set(null);
+      if (target.getContent() != source) {
+        return; // image was closed or replaced while the task ran
+      }
+      target.setContent(task.getValue());
+      onApplied.accept(task.reverse);
+    });
+    task.setOnCancelled(e -> currentTask.set(null));
+    task.setOnFailed(e -> {
+      currentTask.set(null);
+      errorHandler.accept(task.getException());
+    });
+    currentTask.set(task);
+    worker.execute(task);
+    return task;
+  }
+
+  public boolean isRunning() {
+    return currentTask.get() != null;
+  }
+
+  /**
+   * Requests cancellation of the running task, if any. Its result is discarded.
+   */
+  public void cancel() {
+    Task<AppImageContext> task = currentTask.get();
+    if (task != null) {
+      task.cancel();
+    }
+  }
+
+  public ReadOnlyObjectProperty<Task<AppImageContext>> currentTaskProperty() {
+    return currentTask.getReadOnlyProperty();
+  }
+
+  /**
+   * Task over a detached context that doubles as its {@link ProgressMonitor}; {@code isCancelled()}
+   * is shared with {@link Task}. Its value is the context, and {@link #reverse} the delta that
+   * undoes the change.
+   */
+  private abstract static class ContextTask extends Task<AppImageContext>
+    implements ProgressMonitor {
+
+    final AppImageContext context;
+    // Written on the worker, read on the FX thread after the task succeeded
+    ImageDelta reverse;
+
+    ContextTask(AppImageContext context, String message) {
+      this.context = context;
+      context.setProgressMonitor(this);
+      updateMessage(message);
+    }
+
+    @Override
+    public void progress(double fraction) {
+      updateProgress(fraction, 1.0);
+    }
+  }
+
+  private static final class OperationTask extends ContextTask {
+
+    private final ImageOperation op;
+    private final boolean lazy;
+
+    OperationTask(ImageOperation op, AppImageContext context, String message, boolean lazy) {
+      super(context, message);
+      this.op = op;
+      this.lazy = lazy;
+    }
+
+    @Override
+    protected AppImageContext call() {
+      AppImageContext before = context.copy();
+      ImageBuffer overview = context.getOverview();
+      PixelTransform transform = op instanceof GeometricOperation geometric && context.hasImage()
+        ? geometric.getTransform(context, context.getWidth(), context.getHeight())
+        : null;
+      ImageBuffer view = transform != null && !context.isTiled()
+        ? Resampler.cropView(context.getBuffer(), transform)
+        : null;
+      if (view != null) {
+        context.setBuffer(view);
+        reverse = new ImageDelta.ViewDelta(before, view);
+        return context;
+      }
+      if (lazy && transform != null) {
+        ImageBuffer base = overview != null ? overview
+          : ImageLoader.overviewOf(context.getBuffer());
+        context.setTiledImage(context.getTiledImage().transform(transform),
+          transformOverview(base, before, transform));
+      } else {
+        op.apply(context);
+        if (context.getContent() != before.getContent() && context.isTiled()
+          && overview != null) {
+          ImageBuffer newOverview = applyToOverview(overview, before.getWidth());
+          context.setTiledImage(context.getTiledImage(), newOverview);
+        }
+      }
+      if (context.getContent() == before.getContent() || isCancelled()) {
+        return context;
+      }
+      reverse = ImageDelta.between(before, context);
+      return context;
+    }
+
+    /**
+     * Resamples {@code overview}, a downsampled copy of {@code before}, through {@code transform}
+     * scaled to overview coordinates.
+     */
+    private static ImageBuffer transformOverview(ImageBuffer overview, AppImageContext before,
+      PixelTransform transform) {
+      double scale = (double) overview.getWidth() / before.getWidth();
+      int width = Math.max(1, (int) Math.round(transform.getWidth() * scale));
+      int height = Math.max(1, (int) Math.round(transform.getHeight() * scale));
+      PixelTransform scaled = PixelTransform.scale(
+          (double) before.getWidth() / overview.getWidth(),
+          (double) before.getHeight() / overview.getHeight(), before.getWidth(), before.getHeight())
+        .then(transform)
+        .then(PixelTransform.scale((double) width / transform.getWidth(),
+          (double) height / transform.getHeight(), width, height));
+      return Resampler.resample(overview, scaled);
+    }
+
+    /**
+     * Runs the operation on {@code overview}, with the selection scaled from an image that was
+     * {@code width} pixels wide.
+     */
+    private ImageBuffer applyToOverview(ImageBuffer overview, int width) {
+      double scale = (double) overview.getWidth() / width;
+      AppImageContext proxy = new AppImageContext();
+      proxy.setBuffer(overview);
+      proxy.setSelection(context.getSelectionX() * scale, context.getSelectionY() * scale,
+        context.getSelectionWidth() * scale, context.getSelectionHeight() * scale);
+      op.apply(proxy);
+      return proxy.getBuffer();
+    }
+  }
+
+  private static final class DeltaTask extends ContextTask {
+
+    private final ImageDelta delta;
+
+    DeltaTask(ImageDelta delta, AppImageContext context, String message) {
+      super(context, message);
+      this.delta = delta;
+    }
+
+    @Override
+    protected AppImageContext call() {
+      reverse = delta.apply(context);
+      return context;
+    }
+  }
+}
@@ -1,16 +1,110 @@
 package io.distorio.app;
 
+import io.distorio.operation.api.ImageBuffer;
 import io.distorio.operation.api.ImageOperation;
-import java.util.Stack;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javafx.application.Platform;
 
+/**
+ * Undo and redo stacks of applied operations, each paired with the {@link ImageDelta} that
+ * restores the image from before (on the undo stack) or after (on the redo stack) the operation.
+ * <p>
+ * Deltas are kept in memory up to {@code -Ddistorio.history.budgetMb} (default 256). Beyond that
+ * the oldest ones are spilled to a {@link HistorySwap} file in {@code -Ddistorio.history.dir}
+ * (default {@code distorio} in the system temp directory) and read back only if the user undoes
+ * that far. Spilled deltas share a second budget, {@code -Ddistorio.history.diskMb} (default
+ * 8192); when that is exceeded too, or the swap file cannot be written, the oldest undo steps are
+ * dropped first, then the furthest redo steps. The most recent step in each direction always stays
+ * in memory.
+ * <p>
+ * Only accessed on the FX thread; the swap file is written by a background worker.
+ */
 public class OperationHistory {
 
-  private final Stack<ImageOperation> undoStack = new Stack<>();
-  private final Stack<ImageOperation> redoStack = new Stack<>();
+  private static final ExecutorService SWAP_WORKER = Executors.newSingleThreadExecutor(r -> {
+    Thread thread = new Thread(r, "distorio-history-swap");
+    thread.setDaemon(true);
+    return thread;
+  });
 
-  public void push(ImageOperation op) {
-    undoStack.push(op);
+  /**
+   * One undoable or redoable step.
+   */
+  public static final class Entry {
+
+    private final ImageOperation operation;
+    private final ImageDelta delta;
+
+    private Entry(ImageOperation operation, ImageDelta delta) {
+      this.operation = operation;
+      this.delta = delta;
+    }
+
+    public ImageOperation getOperation() {
+      return operation;
+    }
+
+    ImageDelta getDelta() {
+      return delta;
+    }
+  }
+
+  // Most recent entry first
+  private final Deque<Entry> undoStack = new ArrayDeque<>();
+  private final Deque<Entry> redoStack = new ArrayDeque<>();
+  private final long memoryBudget;
+  private final long diskBudget;
+  private final Path swapDirectory;
+  private long memoryBytes;
+  private long diskBytes;
+  private boolean swapFailed;
+  private Runnable onReleased = () -> { };
+  // Created and used on SWAP_WORKER only
+  private HistorySwap swap;
+
+  public OperationHistory() {
+    this((long) Integer.getInteger("distorio.history.budgetMb", 256) << 20,
+      (long) Integer.getInteger("distorio.history.diskMb", 8192) << 20,
+      Paths.get(System.getProperty("distorio.history.dir",
+        Paths.get(System.getProperty("java.io.tmpdir"), "distorio").toString())));
+  }
+
+  /**
+   * @param diskBudget bytes that may be spilled to {@code swapDirectory}; 0 keeps history in memory
+   */
+  public OperationHistory(long memoryBudget, long diskBudget, Path swapDirectory) {
+    this.memoryBudget = memoryBudget;
+    this.diskBudget = diskBudget;
+    this.swapDirectory = swapDirectory;
+  }
+
+  /**
+   * Sets what runs on the FX thread after a dropped step has released what it kept. Releasing an
+   * undone crop {@link ImageBuffer#compact compacts} the cropped view, which may be displayed.
+   */
+  void setOnReleased(Runnable action) {
+    onReleased = action;
+  }
+
+  /**
+   * Records an applied operation and discards the redo stack.
+   *
+   * @param undo restores the image from before {@code op}
+   */
+  void push(ImageOperation op, ImageDelta undo) {
+    for (Entry entry : redoStack) {
+      discard(entry.delta);
+    }
     redoStack.clear();
+    add(undoStack, new Entry(op, undo));
   }
 
   public boolean canUndo() {
@@ -21,26 +115,183 @@ public class OperationHistory {
     return !redoStack.isEmpty();
   }
 
-  public ImageOperation undo() {
-    if (!canUndo()) {
-      return null;
-    }
-    ImageOperation op = undoStack.pop();
-    redoStack.push(op);
-    return op;
+  /**
+   * @return the step {@link #undone} expects next, or null
+   */
+  public Entry peekUndo() {
+    return undoStack.peekFirst();
   }
 
-  public ImageOperation redo() {
-    if (!canRedo()) {
-      return null;
-    }
-    ImageOperation op = redoStack.pop();
-    undoStack.push(op);
-    return op;
+  /**
+   * @return the step {@link #redone} expects next, or null
+   */
+  public Entry peekRedo() {
+    return redoStack.peekFirst();
+  }
+
+  /**
+   * Moves {@code entry}, which was just undone, to the redo stack.
+   *
+   * @param redo the delta returned by applying the entry's delta
+   */
+  void undone(Entry entry, ImageDelta redo) {
+    move(entry, undoStack, redoStack, redo);
+  }
+
+  /**
+   * Moves {@code entry}, which was just redone, back to the undo stack.
+   *
+   * @param undo the delta returned by applying the entry's delta
+   */
+  void redone(Entry entry, ImageDelta undo) {
+    move(entry, redoStack, undoStack, undo);
+  }
+
+  /**
+   * @return memory held by recorded deltas, in bytes
+   */
+  public long getSizeBytes() {
+    return memoryBytes;
+  }
+
+  /**
+   * @return bytes of recorded deltas spilled to the swap file
+   */
+  public long getDiskBytes() {
+    return diskBytes;
   }
 
   public void clear() {
     undoStack.clear();
     redoStack.clear();
+    memoryBytes = 0;
+    diskBytes = 0;
+    SWAP_WORKER.execute(() -> {
+      if (swap != null) {
+        swap.clear();
+      }
+    });
+  }
+
+  /**
+   * Clears the history and deletes its swap file.
+   */
+  public void close() {
+    clear();
+    SWAP_WORKER.execute(() -> {
+      if (swap != null) {
+        swap.close();
+        swap = null;
+      }
+    });
+  }
+
+  private void move(Entry entry, Deque<Entry> from, Deque<Entry> to, ImageDelta delta) {
+    if (from.peekFirst() != entry) {
+      return; // history was cleared or changed meanwhile
+    }
+    from.removeFirst();
+    if (delta == entry.delta) {
+      account(delta, -1);
+    } else {
+      discard(entry.delta);
+    }
+    add(to, new Entry(entry.operation, delta));
+  }
+
+  private void add(Deque<Entry> stack, Entry entry) {
+    stack.addFirst(entry);
+    account(entry.delta, 1);
+    while (memoryBytes > memoryBudget && !swapFailed) {
+      ImageDelta oldest = oldestInMemory();
+      if (oldest == null || diskBytes + oldest.sizeBytes() > diskBudget) {
+        break;
+      }
+      spill(oldest);
+    }
+    while (memoryBytes > memoryBudget || diskBytes > diskBudget) {
+      Deque<Entry> victim = undoStack.size() > 1 ? undoStack
+        : redoStack.size() > 1 ? redoStack : null;
+      if (victim == null) {
+        break;
+      }
+      discard(victim.removeLast().delta);
+    }
+  }
+
+  /**
+   * @return the oldest delta still in memory, other than the most recent one of each stack
+   */
+  private ImageDelta oldestInMemory() {
+    for (Deque<Entry> stack : List.of(undoStack, redoStack)) {
+      Iterator<Entry> it = stack.descendingIterator();
+      for (int i = stack.size(); i > 1; i--) {
+        ImageDelta delta = it.next().delta;
+        if (!delta.onDisk && delta.canSpill()) {
+          return delta;
+        }
+      }
+    }
+    return null;
+  }
+
+  private void spill(ImageDelta delta) {
+    account(delta, -1);
+    delta.onDisk = true;
+    account(delta, 1);
+    SWAP_WORKER.execute(() -> {
+      try {
+        if (swap == null) {
+          swap = HistorySwap.create(swapDirectory);
+        }
+        delta.spill(swap);
+      } catch (IOException e) {
+        e.printStackTrace();
+        Platform.runLater(() -> {
+          // Keep what could not be written in memory and fall back to dropping old steps
+          swapFailed = true;
+          if (isRecorded(delta)) {
+            account(delta, -1);
+            delta.onDisk = false;
+            account(delta, 1);
+          } else {
+            delta.onDisk = false;
+          }
+        });
+      }
+    });
+  }
+
+  private boolean isRecorded(ImageDelta delta) {
+    for (Entry entry : undoStack) {
+      if (entry.delta == delta) {
+        return true;
+      }
+    }
+    for (Entry entry : redoStack) {
+      if (entry.delta == delta) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void discard(ImageDelta delta) {
+    account(delta, -1);
+    Runnable released = onReleased;
+    // After any pending spill of the same delta
+    SWAP_WORKER.execute(() -> {
+      if (delta.release()) {
+        Platform.runLater(released);
+      }
+    });
+  }
+
+  private void account(ImageDelta delta, int sign) {
+    if (delta.onDisk) {
+      diskBytes += sign * delta.sizeBytes();
+    } else {
+      memoryBytes += sign * delta.sizeBytes();
+    }
   }
 }
@@ -1,20 +1,31 @@
 package io.distorio.app;
 
+import javafx.beans.binding.Bindings;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
 import javafx.scene.layout.Pane;
+import javafx.scene.layout.StackPane;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Rectangle;
 
 public class OverlayHelper {
 
+  // Gap between the preview inset and the edges of the overlay
+  private static final double MARGIN = 12;
+  // Largest fraction of the overlay the preview inset covers in either direction
+  private static final double PREVIEW_FRACTION = 0.4;
+
   private final Pane overlay;
   private Rectangle selectionRect;
+  private ImageView previewView;
+  private StackPane previewFrame;
 
   public OverlayHelper(Pane overlay) {
     this.overlay = overlay;
   }
 
   public void showSelectionRect(double x, double y, double w, double h) {
-    clear();
+    overlay.getChildren().remove(selectionRect);
     selectionRect = new Rectangle(x, y, w, h);
     selectionRect.setStroke(Color.BLUE);
     selectionRect.setStrokeWidth(2);
@@ -22,8 +33,40 @@ public class OverlayHelper {
     overlay.getChildren().add(selectionRect);
   }
 
+  /**
+   * Shows {@code image} in an inset at the bottom right of the overlay, beneath the selection,
+   * replacing the previous preview. The inset scales the image down to fit, never up.
+   */
+  public void showPreview(Image image) {
+    if (previewFrame == null) {
+      previewView = new ImageView();
+      previewView.setPreserveRatio(true);
+      previewView.setSmooth(true);
+      previewFrame = new StackPane(previewView);
+      previewFrame.setStyle("-fx-background-color: rgba(0, 0, 0, 0.6); -fx-padding: 4;"
+        + " -fx-border-color: #3c78d8; -fx-border-width: 1;");
+      previewFrame.setMouseTransparent(true);
+      previewFrame.layoutXProperty().bind(Bindings.createDoubleBinding(
+        () -> overlay.getWidth() - previewFrame.getWidth() - MARGIN,
+        overlay.widthProperty(), previewFrame.widthProperty()));
+      previewFrame.layoutYProperty().bind(Bindings.createDoubleBinding(
+        () -> overlay.getHeight() - previewFrame.getHeight() - MARGIN,
+        overlay.heightProperty(), previewFrame.heightProperty()));
+      overlay.getChildren().add(0, previewFrame);
+    }
+    previewView.setImage(image);
+    previewView.fitWidthProperty().bind(Bindings.createDoubleBinding(
+      () -> Math.min(image.getWidth(), overlay.getWidth() * PREVIEW_FRACTION),
+      overlay.widthProperty()));
+    previewView.fitHeightProperty().bind(Bindings.createDoubleBinding(
+      () -> Math.min(image.getHeight(), overlay.getHeight() * PREVIEW_FRACTION),
+      overlay.heightProperty()));
+  }
+
   public void clear() {
     overlay.getChildren().clear();
     selectionRect = null;
+    previewFrame = null;
+    previewView = null;
   }
 }
@@ -0,0 +1,102 @@
+package io.distorio.app;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Lossless compression of runs of ARGB pixels for the undo history.
+ * <p>
+ * Each channel is first replaced by its difference to the same channel of the pixel on its left
+ * (PNG's "sub" filter), which turns smooth photo content into small values that deflate much
+ * better. Runs of zeros, such as the unchanged part of an XOR delta, stay zeros. Safe to call from
+ * many threads; each thread keeps its own {@link Deflater} and {@link Inflater}.
+ */
+final class PixelCodec {
+
+  private static final int HIGH_BITS = 0x80808080;
+
+  private static final ThreadLocal<Deflater> DEFLATER =
+    ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED));
+  private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(Inflater::new);
+
+  private PixelCodec() {
+  }
+
+  /**
+   * Compresses {@code length} pixels of {@code pixels} starting at {@code offset}. Rows are not
+   * treated specially, so callers may pass several rows at once.
+   */
+  static byte[] compress(int[] pixels, int offset, int length) {
+    ByteBuffer filtered = ByteBuffer.allocate(length * Integer.BYTES)
+      .order(ByteOrder.LITTLE_ENDIAN);
+    int previous = 0;
+    for (int i = offset, end = offset + length; i < end; i++) {
+      int p = pixels[i];
+      filtered.putInt(subtractBytes(p, previous));
+      previous = p;
+    }
+    filtered.flip();
+
+    Deflater deflater = DEFLATER.get();
+    deflater.reset();
+    deflater.setInput(filtered);
+    deflater.finish();
+    byte[] out = new byte[Math.max(64, length / 2)];
+    int size = 0;
+    while (!deflater.finished()) {
+      if (size == out.length) {
+        out = Arrays.copyOf(out, out.length * 2);
+      }
+      size += deflater.deflate(out, size, out.length - size);
+    }
+    return Arrays.copyOf(out, size);
+  }
+
+  /**
+   * Restores {@code length} pixels compressed by {@link #compress} into {@code pixels} at
+   * {@code offset}. {@code data} may be a view of a memory-mapped file.
+   */
+  static void decompress(ByteBuffer data, int[] pixels, int offset, int length) {
+    ByteBuffer filtered = ByteBuffer.allocate(length * Integer.BYTES)
+      .order(ByteOrder.LITTLE_ENDIAN);
+    Inflater inflater = INFLATER.get();
+    inflater.reset();
+    inflater.setInput(data);
+    try {
+      while (filtered.hasRemaining() && !inflater.finished()) {
+        if (inflater.inflate(filtered) == 0 && inflater.needsInput()) {
+          break;
+        }
+      }
+    } catch (DataFormatException e) {
+      throw new IllegalStateException("Corrupt history data", e);
+    }
+    if (filtered.hasRemaining()) {
+      throw new IllegalStateException("Truncated history data");
+    }
+    filtered.flip();
+    int previous = 0;
+    for (int i = offset, end = offset + length; i < end; i++) {
+      previous = addBytes(filtered.getInt(), previous);
+      pixels[i] = previous;
+    }
+  }
+
+  /**
+   * Per-byte {@code a - b} modulo 256, without borrows crossing byte boundaries.
+   */
+  private static int subtractBytes(int a, int b) {
+    return ((a | HIGH_BITS) - (b & ~HIGH_BITS)) ^ ((a ^ ~b) & HIGH_BITS);
+  }
+
+  /**
+   * Per-byte {@code a + b} modulo 256, without carries crossing byte boundaries.
+   */
+  private static int addBytes(int a, int b) {
+    return ((a & ~HIGH_BITS) + (b & ~HIGH_BITS)) ^ ((a ^ b) & HIGH_BITS);
+  }
+}
@@ -0,0 +1,145 @@
+package io.distorio.app;
+
+import io.distorio.operation.api.ImageBuffer;
+import io.distorio.operation.api.ImageOperation;
+import io.distorio.operation.api.ImagePyramid;
+import io.distorio.operation.api.ProgressMonitor;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import javafx.application.Platform;
+import javafx.scene.image.Image;
+
+/**
+ * Renders {@link ImageOperation#preview} on a background worker while the user adjusts an
+ * operation, on a proxy of the image downsampled to about the size it is viewed at.
+ * <p>
+ * Requests coalesce: only the latest one waits to be rendered, so a drag that moves faster than
+ * previews render skips the positions in between instead of queueing them. A new request also
+ * cancels the preview in progress through its {@link ProgressMonitor}, and results that are out of
+ * date by the time they reach the FX thread are dropped.
+ * <p>
+ * The proxy is halved from the image, or from the overview of a tiled image, for as long as it
+ * stays at least as large as requested, and is kept for further requests on the same image.
+ */
+class PreviewRenderer {
+
+  private static final ExecutorService WORKER = Executors.newSingleThreadExecutor(r -> {
+    Thread thread = new Thread(r, "distorio-preview");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final AtomicReference<Request> pending = new AtomicReference<>();
+  // Whether a drain of pending is queued or running on the worker
+  private final AtomicBoolean scheduled = new AtomicBoolean();
+  // Incremented on the FX thread by every request and by cancel; older results are dropped
+  private volatile long generation;
+  // Worker only: the proxy last made, for which image content and edge
+  private Object proxySource;
+  private int proxyEdge;
+  private ImageBuffer proxy;
+
+  private record Request(ImageOperation op, AppImageContext image, int edge, long generation,
+                         Consumer<Image> onRendered) {
+  }
+
+  /**
+   * Schedules a preview of {@code op} on the current image and selection of {@code image}. Must be
+   * called on the FX thread.
+   *
+   * @param edge       long edge, in pixels, below which the proxy is not downsampled
+   * @param onRendered runs on the FX thread with the preview, unless a newer request or
+   *                   {@link #cancel} came first
+   */
+  void request(ImageOperation op, AppImageContext image, int edge, Consumer<Image> onRendered) {
+    long current = ++generation;
+    pending.set(new Request(op, image.copy(), edge, current, onRendered));
+    if (scheduled.compareAndSet(false, true)) {
+      WORKER.execute(this::drain);
+    }
+  }
+
+  /**
+   * Drops the pending request and the result of the one in progress. Must be called on the FX
+   * thread.
+   */
+  void cancel() {
+    generation++;
+    pending.set(null);
+  }
+
+  private void drain() {
+    while (true) {
+      Request request = pending.getAndSet(null);
+      if (request != null) {
+        render(request);
+        continue;
+      }
+      scheduled.set(false);
+      // A request may have been set after getAndSet but seen scheduled still true
+      if (pending.get() == null || !scheduled.compareAndSet(false, true)) {
+        return;
+      }
+    }
+  }
+
+  private void render(Request request) {
+    ProgressMonitor monitor = new ProgressMonitor() {
+      @Override
+      public void progress(double fraction) {
+      }
+
+      @Override
+      public boolean isCancelled() {
+        return generation != request.generation();
+      }
+    };
+    try {
+      ImageBuffer source = proxyFor(request.image(), request.edge());
+      if (source == null || monitor.isCancelled()) {
+        return;
+      }
+      AppImageContext context = request.image().preview(source);
+      context.setProgressMonitor(monitor);
+      request.op().preview(context);
+      if (!context.hasImage() || monitor.isCancelled()) {
+        return;
+      }
+      Image result = context.isTiled()
+        ? AppImageContext.wrap(context.getTiledImage().toBuffer())
+        : context.getImage();
+      Platform.runLater(() -> {
+        if (generation == request.generation()) {
+          request.onRendered().accept(result);
+        }
+      });
+    } catch (CancellationException e) {
+      // Superseded by a newer request
+    } catch (RuntimeException e) {
+      e.printStackTrace();
+    }
+  }
+
+  private ImageBuffer proxyFor(AppImageContext image, int edge) {
+    Object content = image.getContent();
+    if (content == proxySource && edge == proxyEdge) {
+      return proxy;
+    }
+    ImageBuffer level = image.isTiled() ? image.getOverview() : image.getBuffer();
+    if (level == null) {
+      return null;
+    }
+    while (Math.max(ImagePyramid.halfSize(level.getWidth()),
+      ImagePyramid.halfSize(level.getHeight())) >= edge) {
+      level = ImagePyramid.halve(level);
+    }
+    proxySource = content;
+    proxyEdge = edge;
+    proxy = level;
+    return level;
+  }
+}
@@ -0,0 +1,54 @@
+package io.distorio.app;
+
+import io.distorio.operation.api.ImageBuffer;
+import io.distorio.operation.api.TiledImage;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Decodes tiles of an image file on demand with {@link ImageReadParam#setSourceRegion}, keeping
+ * the reader and its stream open for the lifetime of the {@link TiledImage}.
+ * <p>
+ * This is cheap for tiled and striped formats (e.g. pyramidal or tiled TIFF), where the reader
+ * seeks straight to the data for a region. Formats without random access still work, but each
+ * tile is decoded from the start of the file down to the tile's last row.
+ */
+final class RegionTileSource implements TiledImage.TileSource {
+
+  private final ImageInputStream in;
+  private final ImageReader reader;
+  private final ImageReadParam param;
+
+  /**
+   * Takes ownership of {@code reader} and {@code in}; both are closed by {@link #close()}.
+   */
+  RegionTileSource(ImageInputStream in, ImageReader reader) {
+    this.in = in;
+    this.reader = reader;
+    this.param = reader.getDefaultReadParam();
+  }
+
+  /**
+   * ImageIO readers are not thread-safe, so tiles are decoded one at a time.
+   */
+  @Override
+  public synchronized void readTile(int x, int y, ImageBuffer tile) throws IOException {
+    int w = tile.getWidth();
+    int h = tile.getHeight();
+    param.setSourceRegion(new Rectangle(x, y, w, h));
+    BufferedImage region = reader.read(0, param);
+    int[] argb = region.getRGB(0, 0, w, h, null, 0, w);
+    ImageBuffer.premultiply(argb, 0, argb.length);
+    tile.setPixels(0, 0, w, h, argb, 0, w);
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    reader.dispose();
+    in.close();
+  }
+}
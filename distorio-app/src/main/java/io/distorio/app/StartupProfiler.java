@@ -0,0 +1,118 @@
+package io.distorio.app;
+
+import io.distorio.operation.api.OperationRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import javafx.scene.Scene;
+
+/**
+ * Times the steps of start-up from {@link DistorioApp#start}: how long the JVM took to get there,
+ * each step run on the FX thread, work that finishes in the background, and the first pulse of the
+ * window's scene.
+ * <p>
+ * Once every step has finished, the breakdown, including the time of every plugin from
+ * {@link OperationRegistry#getTimings()}, is printed to standard output if the system property
+ * {@code distorio.startup.profile} is {@code true}.
+ */
+class StartupProfiler {
+
+  private static final String PROPERTY = "distorio.startup.profile";
+
+  private final long origin = System.nanoTime();
+  // Milliseconds from the launch of the JVM to the profiler's creation, or -1 if unknown
+  private final long jvmMillis = ProcessHandle.current().info().startInstant()
+    .map(start -> Duration.between(start, Instant.now()).toMillis())
+    .orElse(-1L);
+  // Guarded by this
+  private final List<Step> steps = new ArrayList<>();
+  private final List<CompletableFuture<?>> pending = new ArrayList<>();
+
+  private record Step(String name, long start, long end) {
+  }
+
+  /**
+   * Runs {@code work} and records how long it took.
+   */
+  <T> T time(String name, Supplier<T> work) {
+    long start = System.nanoTime();
+    try {
+      return work.get();
+    } finally {
+      record(name, start, System.nanoTime());
+    }
+  }
+
+  /**
+   * Records the time from now until {@code work} completes, on whichever thread it completes.
+   */
+  void track(String name, CompletableFuture<?> work) {
+    long start = System.nanoTime();
+    CompletableFuture<?> done = work.whenComplete((result, e) -> record(name, start,
+      System.nanoTime()));
+    synchronized (this) {
+      pending.add(done);
+    }
+  }
+
+  /**
+   * Records the time from now until the first pulse of {@code scene} has laid it out, just
+   * before its first frame is rendered. Must be called on the FX thread.
+   */
+  void trackFirstPulse(Scene scene) {
+    CompletableFuture<Void> pulse = new CompletableFuture<>();
+    Runnable listener = new Runnable() {
+      @Override
+      public void run() {
+        scene.removePostLayoutPulseListener(this);
+        pulse.complete(null);
+      }
+    };
+    scene.addPostLayoutPulseListener(listener);
+    track("First pulse", pulse);
+  }
+
+  /**
+   * Prints the breakdown once all tracked work has finished, if profiling is enabled.
+   */
+  void reportWhenDone() {
+    if (!Boolean.getBoolean(PROPERTY)) {
+      return;
+    }
+    CompletableFuture<?>[] all;
+    synchronized (this) {
+      all = pending.toArray(CompletableFuture[]::new);
+    }
+    CompletableFuture.allOf(all).whenComplete((result, e) -> System.out.print(report()));
+  }
+
+  private synchronized void record(String name, long start, long end) {
+    steps.add(new Step(name, start, end));
+  }
+
+  private synchronized String report() {
+    StringBuilder report = new StringBuilder("Startup, in ms (at: since DistorioApp.start)\n");
+    if (jvmMillis >= 0) {
+      report.append(String.format(Locale.ROOT, "  %-28s %9d%n", "JVM to DistorioApp.start",
+        jvmMillis));
+    }
+    for (Step step : steps) {
+      report.append(String.format(Locale.ROOT, "  %-28s %9.1f  at %9.1f%n", step.name(),
+        millis(step.end() - step.start()), millis(step.end() - origin)));
+    }
+    report.append("Plugins, in ms (discovery / instantiation / creation)\n");
+    for (OperationRegistry.PluginTiming plugin : OperationRegistry.getTimings()) {
+      report.append(String.format(Locale.ROOT, "  %-60s %7.2f %7.2f %7.2f%n", plugin.provider(),
+        millis(plugin.discovery()), millis(plugin.instantiation()), millis(plugin.creation())));
+    }
+    return report.toString();
+  }
+
+  private static double millis(long nanos) {
+    return nanos < 0 ? Double.NaN : nanos / 1e6;
+  }
+}
@@ -0,0 +1,223 @@
+package io.distorio.app;
+
+import io.distorio.operation.api.TiledImage;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import javafx.application.Platform;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.Pane;
+
+/**
+ * Displays the tiles of a {@link TiledImage} that intersect the viewport, one {@link ImageView}
+ * per tile. Zoomed out, tiles come from the pyramid level ({@link TiledImage#downsample()}) closest
+ * to the screen resolution, so each tile covers more of the image and stays sharp.
+ * <p>
+ * Tiles are fetched on a background pool and appear as they arrive; tiles that scroll out of view
+ * are dropped, and their pending fetches skipped, so the scene graph and texture memory only ever
+ * hold what is on screen. When zoomed out far enough that the overview beneath is as sharp as the
+ * tiles would be, no tiles are shown.
+ */
+class TiledImageView extends Pane {
+
+  /**
+   * Upper bound on tiles shown at once; beyond this the overview is used instead.
+   */
+  private static final int MAX_VISIBLE_TILES = 256;
+
+  private static final AtomicInteger LOADER_THREADS = new AtomicInteger();
+  private static final ExecutorService TILE_LOADER = Executors.newFixedThreadPool(
+    Math.max(2, Runtime.getRuntime().availableProcessors() / 2), r -> {
+      Thread thread = new Thread(r, "distorio-tile-loader-" + LOADER_THREADS.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+
+  private final Map<Long, Tile> tiles = new HashMap<>();
+  private TiledImage image;
+  // image followed by its lazily derived pyramid levels, extended as needed
+  private final List<TiledImage> levels = new ArrayList<>();
+  private int level;
+  // Scale of the overview beneath; tiles are only needed when zoomed in beyond it
+  private double overviewScale;
+  private double zoom = 1.0;
+  private double viewX, viewY, viewWidth, viewHeight;
+
+  TiledImageView() {
+    setManaged(false);
+    setMouseTransparent(true);
+  }
+
+  /**
+   * Shows {@code image}, or nothing if it is null.
+   *
+   * @param overviewScale overview width divided by image width
+   */
+  void setImage(TiledImage image, double overviewScale) {
+    if (this.image == image) {
+      return;
+    }
+    this.image = image;
+    this.overviewScale = overviewScale;
+    clear();
+    levels.clear();
+    if (image != null) {
+      levels.add(image);
+    }
+    level = 0;
+    refresh();
+  }
+
+  void setZoom(double zoom) {
+    if (this.zoom == zoom) {
+      return;
+    }
+    this.zoom = zoom;
+    for (Tile tile : tiles.values()) {
+      place(tile);
+    }
+    refresh();
+  }
+
+  /**
+   * Sets the visible area, in this node's (zoomed) coordinates.
+   */
+  void setViewport(double x, double y, double width, double height) {
+    viewX = x;
+    viewY = y;
+    viewWidth = width;
+    viewHeight = height;
+    refresh();
+  }
+
+  private void refresh() {
+    if (image == null || viewWidth <= 0 || viewHeight <= 0 || zoom <= overviewScale) {
+      clear();
+      return;
+    }
+    int wanted = levelFor(zoom);
+    if (wanted != level) {
+      clear();
+      level = wanted;
+    }
+    TiledImage current = levels.get(level);
+    double span = current.getTileSize() * scale();
+    int tx0 = Math.max(0, (int) (viewX / span));
+    int ty0 = Math.max(0, (int) (viewY / span));
+    int tx1 = Math.min(current.getTilesX() - 1, (int) ((viewX + viewWidth) / span));
+    int ty1 = Math.min(current.getTilesY() - 1, (int) ((viewY + viewHeight) / span));
+    if ((long) (tx1 - tx0 + 1) * (ty1 - ty0 + 1) > MAX_VISIBLE_TILES) {
+      clear();
+      return;
+    }
+
+    Iterator<Tile> it = tiles.values().iterator();
+    while (it.hasNext()) {
+      Tile tile = it.next();
+      if (tile.tx < tx0 || tile.tx > tx1 || tile.ty < ty0 || tile.ty > ty1) {
+        tile.dropped = true;
+        getChildren().remove(tile.view);
+        it.remove();
+      }
+    }
+    for (int ty = ty0; ty <= ty1; ty++) {
+      for (int tx = tx0; tx <= tx1; tx++) {
+        long key = (long) tx << 32 | ty;
+        if (!tiles.containsKey(key)) {
+          Tile tile = new Tile(tx, ty);
+          place(tile);
+          tiles.put(key, tile);
+          getChildren().add(tile.view);
+          request(current, tile);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the coarsest level that is still at least as large as the image at {@code zoom}
+   */
+  private int levelFor(double zoom) {
+    int k = 0;
+    while (zoom <= 1.0 / (1L << (k + 1))) {
+      if (k + 1 == levels.size()) {
+        TiledImage last = levels.get(k);
+        if (Math.max(last.getWidth(), last.getHeight()) <= last.getTileSize()) {
+          break;
+        }
+        levels.add(last.downsample());
+      }
+      k++;
+    }
+    return k;
+  }
+
+  /**
+   * @return on-screen size of one pixel of the current level
+   */
+  private double scale() {
+    return zoom * (1L << level);
+  }
+
+  private void clear() {
+    for (Tile tile : tiles.values()) {
+      tile.dropped = true;
+    }
+    tiles.clear();
+    getChildren().clear();
+  }
+
+  private static void request(TiledImage source, Tile tile) {
+    CompletableFuture.supplyAsync(() -> tile.dropped ? null : source.getTile(tile.tx, tile.ty),
+        TILE_LOADER)
+      .whenComplete((pixels, error) -> {
+        if (error != null) {
+          error.printStackTrace();
+        } else if (pixels != null) {
+          Platform.runLater(() -> {
+            if (!tile.dropped) {
+              tile.view.setImage(AppImageContext.wrap(pixels));
+            }
+          });
+        }
+      });
+  }
+
+  /**
+   * Positions a tile on whole pixels, sized to meet its neighbours exactly, so no seams show.
+   */
+  private void place(Tile tile) {
+    TiledImage current = levels.get(level);
+    int size = current.getTileSize();
+    double scale = scale();
+    double x0 = Math.floor(tile.tx * size * scale);
+    double y0 = Math.floor(tile.ty * size * scale);
+    double x1 = Math.floor(Math.min(current.getWidth(), (tile.tx + 1) * size) * scale);
+    double y1 = Math.floor(Math.min(current.getHeight(), (tile.ty + 1) * size) * scale);
+    tile.view.setLayoutX(x0);
+    tile.view.setLayoutY(y0);
+    tile.view.setFitWidth(x1 - x0);
+    tile.view.setFitHeight(y1 - y0);
+    tile.view.setSmooth(scale < 1.0);
+  }
+
+  private static final class Tile {
+
+    final int tx;
+    final int ty;
+    final ImageView view = new ImageView();
+    // Set on the FX thread once the tile leaves the view; read by the loader to skip stale work
+    volatile boolean dropped;
+
+    Tile(int tx, int ty) {
+      this.tx = tx;
+      this.ty = ty;
+    }
+  }
+}
@@ -0,0 +1,86 @@
+package io.distorio.batch;
+
+import io.distorio.operation.api.ImageBuffer;
+import io.distorio.operation.api.ImageOperation.OperationContext;
+import io.distorio.operation.api.SelectionCapability;
+import java.util.Map;
+import java.util.Optional;
+import javafx.scene.image.Image;
+
+/**
+ * Operation context for one image of a batch run. The image only exists as an
+ * {@link ImageBuffer}: there is no JavaFX toolkit, so operations must use
+ * {@link #getBuffer()}/{@link #setBuffer} rather than {@link #getImage()}. Parameters come from the
+ * recipe step being applied, and the {@code x}, {@code y}, {@code width} and {@code height}
+ * parameters double as the selection.
+ */
+public class BatchContext implements OperationContext, SelectionCapability {
+
+  private ImageBuffer buffer;
+  private Map<String, String> parameters = Map.of();
+
+  public BatchContext(ImageBuffer buffer) {
+    this.buffer = buffer;
+  }
+
+  void setParameters(Map<String, String> parameters) {
+    this.parameters = parameters;
+  }
+
+  @Override
+  public Image getImage() {
+    throw new UnsupportedOperationException("JavaFX images are not available in batch mode");
+  }
+
+  @Override
+  public void setImage(Image image) {
+    buffer = ImageBuffer.fromImage(image);
+  }
+
+  @Override
+  public ImageBuffer getBuffer() {
+    return buffer;
+  }
+
+  @Override
+  public void setBuffer(ImageBuffer buffer) {
+    this.buffer = buffer;
+  }
+
+  @Override
+  public Optional<String> getParameter(String name) {
+    return Optional.ofNullable(parameters.get(name));
+  }
+
+  @Override
+  public double getSelectionX() {
+    return number("x", 0);
+  }
+
+  @Override
+  public double getSelectionY() {
+    return number("y", 0);
+  }
+
+  @Override
+  public double getSelectionWidth() {
+    return number("width", buffer.getWidth() - getSelectionX());
+  }
+
+  @Override
+  public double getSelectionHeight() {
+    return number("height", buffer.getHeight() - getSelectionY());
+  }
+
+  private double number(String name, double fallback) {
+    String value = parameters.get(name);
+    if (value == null) {
+      return fallback;
+    }
+    try {
+      return Double.parseDouble(value);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Parameter " + name + " is not a number: " + value, e);
+    }
+  }
+}
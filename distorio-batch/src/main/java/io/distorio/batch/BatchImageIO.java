@@ -0,0 +1,124 @@
+package io.distorio.batch;
+
+import io.distorio.operation.api.ImageBuffer;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Set;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * Reads and writes {@link ImageBuffer}s with ImageIO alone, so batch runs need no JavaFX toolkit.
+ */
+final class BatchImageIO {
+
+  private static final Set<String> OPAQUE_FORMATS = Set.of("jpg", "jpeg", "bmp", "wbmp");
+  private static final int BAND_ROWS = 256;
+
+  private BatchImageIO() {
+  }
+
+  /**
+   * @return width and height of the first image in {@code file}, read from its header
+   */
+  static int[] dimensions(Path file) throws IOException {
+    try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+      ImageReader reader = reader(file, in);
+      try {
+        reader.setInput(in, true, true);
+        return new int[] {reader.getWidth(0), reader.getHeight(0)};
+      } finally {
+        reader.dispose();
+      }
+    }
+  }
+
+  static ImageBuffer read(Path file) throws IOException {
+    BufferedImage image;
+    try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+      ImageReader reader = reader(file, in);
+      try {
+        reader.setInput(in, true, true);
+        image = reader.read(0);
+      } finally {
+        reader.dispose();
+      }
+    }
+    int width = image.getWidth();
+    int height = image.getHeight();
+    ImageBuffer buffer = ImageBuffer.allocate(width, height);
+    int[] band = new int[width * Math.min(BAND_ROWS, height)];
+    for (int y = 0; y < height; y += BAND_ROWS) {
+      int rows = Math.min(BAND_ROWS, height - y);
+      image.getRGB(0, y, width, rows, band, 0, width);
+      ImageBuffer.premultiply(band, 0, width * rows);
+      buffer.setPixels(0, y, width, rows, band, 0, width);
+    }
+    return buffer;
+  }
+
+  /**
+   * Writes {@code buffer} to {@code file} through a temporary file, so a failed run never leaves a
+   * truncated image behind. Formats without alpha are flattened onto white.
+   */
+  static void write(ImageBuffer buffer, Path file, String format) throws IOException {
+    Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+    if (!writers.hasNext()) {
+      throw new IOException("No image writer for format '" + format + "'");
+    }
+    boolean alpha = !OPAQUE_FORMATS.contains(format.toLowerCase(Locale.ROOT));
+    int width = buffer.getWidth();
+    int height = buffer.getHeight();
+    BufferedImage out = new BufferedImage(width, height,
+      alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+    int[] data = ((DataBufferInt) out.getRaster().getDataBuffer()).getData();
+    buffer.getPixels(0, 0, width, height, data, 0, width);
+    if (alpha) {
+      ImageBuffer.unpremultiply(data, 0, data.length);
+    } else {
+      // Premultiplied colour over white is c' + (255 - a) per channel: no division needed.
+      for (int i = 0; i < data.length; i++) {
+        int p = data[i];
+        int inv = 255 - (p >>> 24);
+        if (inv != 0) {
+          data[i] = (((p >> 16) & 0xFF) + inv) << 16 | (((p >> 8) & 0xFF) + inv) << 8
+            | ((p & 0xFF) + inv);
+        }
+      }
+    }
+
+    Path temp = Files.createTempFile(file.toAbsolutePath().getParent(),
+      "." + file.getFileName(), ".tmp");
+    ImageWriter writer = writers.next();
+    try {
+      try (ImageOutputStream stream = ImageIO.createImageOutputStream(temp.toFile())) {
+        writer.setOutput(stream);
+        writer.write(out);
+      }
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      writer.dispose();
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  private static ImageReader reader(Path file, ImageInputStream in) throws IOException {
+    if (in == null) {
+      throw new IOException("Cannot open " + file);
+    }
+    Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+    if (!readers.hasNext()) {
+      throw new IOException("Unsupported image format: " + file);
+    }
+    return readers.next();
+  }
+}
@@ -0,0 +1,291 @@
+package io.distorio.batch;
+
+import io.distorio.operation.api.GeometricChain;
+import io.distorio.operation.api.GeometricOperation;
+import io.distorio.operation.api.ImageBuffer;
+import io.distorio.operation.api.ImageOperation;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs a {@link Recipe} over many files as three stages, each on its own threads: decode, apply
+ * the operations, encode. Stages hand images to each other through small bounded queues, so a
+ * slow stage makes the ones before it wait instead of letting decoded images pile up in memory;
+ * on top of that each file reserves an estimate of its pixel memory from a shared budget between
+ * decoding and encoding.
+ * <p>
+ * Every stage measures the share of its workers' time spent busy, starved (waiting for input) and
+ * blocked (waiting for room in the next queue); {@link #run} prints these per stage. A stage that
+ * is mostly busy while the others are starved or blocked is the one to give more workers. Decode
+ * counts waiting for the memory budget as busy.
+ */
+final class BatchPipeline {
+
+  // Decoded image, its premultiplied copy, the operation's result and the encoder's copy
+  private static final int COPIES_PER_IMAGE = 4;
+
+  /**
+   * Worker counts per stage and the capacity of the queues between stages.
+   */
+  record Config(int decoders, int workers, int encoders, int queueCapacity, int memoryBudgetMb) {
+  }
+
+  /**
+   * One file on its way through the stages; {@link #END} marks the end of input.
+   */
+  private static final class Job {
+
+    static final Job END = new Job(null);
+
+    final Path file;
+    int width;
+    int height;
+    int permits;
+    BatchContext context;
+    long decodeNanos;
+    long applyNanos;
+
+    Job(Path file) {
+      this.file = file;
+    }
+  }
+
+  private final Recipe recipe;
+  private final Path output;
+  private final String format;
+  private final Config config;
+  private final Semaphore memory;
+  // Operations may keep state between calls, so each apply worker gets its own instances
+  private final ThreadLocal<Map<String, ImageOperation>> operations;
+  private final AtomicInteger failed = new AtomicInteger();
+  private final LongAdder pixels = new LongAdder();
+
+  BatchPipeline(Recipe recipe, Path output, String format, Config config,
+    Supplier<Map<String, ImageOperation>> operations) {
+    this.recipe = recipe;
+    this.output = output;
+    this.format = format;
+    this.config = config;
+    this.memory = new Semaphore(config.memoryBudgetMb());
+    this.operations = ThreadLocal.withInitial(operations);
+  }
+
+  /**
+   * Processes {@code files} and prints per-file timing, throughput and stage utilisation.
+   *
+   * @return the number of files that failed
+   */
+  int run(List<Path> files) throws InterruptedException {
+    BlockingQueue<Job> input = new ArrayBlockingQueue<>(files.size() + config.decoders());
+    for (Path file : files) {
+      input.add(new Job(file));
+    }
+    BlockingQueue<Job> decoded = new ArrayBlockingQueue<>(config.queueCapacity());
+    BlockingQueue<Job> applied = new ArrayBlockingQueue<>(config.queueCapacity());
+
+    Stage decode = new Stage("decode", config.decoders(), input, decoded, config.workers(),
+      this::decode);
+    Stage apply = new Stage("apply", config.workers(), decoded, applied, config.encoders(),
+      this::apply);
+    Stage encode = new Stage("encode", config.encoders(), applied, null, 0, this::encode);
+    for (int i = 0; i < config.decoders(); i++) {
+      input.add(Job.END);
+    }
+
+    long start = System.nanoTime();
+    List<Thread> threads = new ArrayList<>();
+    for (Stage stage : List.of(decode, apply, encode)) {
+      threads.addAll(stage.start());
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    long wall = System.nanoTime() - start;
+
+    double seconds = wall / 1e9;
+    System.out.printf(Locale.ROOT, "%d files, %d failed, in %.2f s: %.2f files/s, %.1f MPix/s%n",
+      files.size(), failed.get(), seconds, files.size() / seconds, pixels.sum() / 1e6 / seconds);
+    for (Stage stage : List.of(decode, apply, encode)) {
+      stage.report(wall);
+    }
+    return failed.get();
+  }
+
+  private void decode(Job job) throws Exception {
+    int[] size = BatchImageIO.dimensions(job.file);
+    job.width = size[0];
+    job.height = size[1];
+    long estimate = (long) size[0] * size[1] * Integer.BYTES * COPIES_PER_IMAGE;
+    int permits = (int) Math.min(config.memoryBudgetMb(), Math.max(1, estimate >> 20));
+    memory.acquire(permits);
+    job.permits = permits;
+    long t0 = System.nanoTime();
+    job.context = new BatchContext(BatchImageIO.read(job.file));
+    job.decodeNanos = System.nanoTime() - t0;
+  }
+
+  /**
+   * Runs the recipe, rendering each run of consecutive geometric operations in one pass.
+   */
+  private void apply(Job job) {
+    long t0 = System.nanoTime();
+    Map<String, ImageOperation> available = operations.get();
+    GeometricChain chain = new GeometricChain();
+    for (Recipe.Step step : recipe.steps()) {
+      ImageOperation operation = available.get(step.operationId());
+      job.context.setParameters(step.parameters());
+      if (!operation.prepare(job.context)) {
+        throw new IllegalStateException(step.operationId() + " cannot run without interaction");
+      }
+      if (!(operation instanceof GeometricOperation geometric) || !chain.add(geometric,
+        job.context)) {
+        chain.flush(job.context);
+        operation.apply(job.context);
+      }
+    }
+    chain.flush(job.context);
+    job.applyNanos = System.nanoTime() - t0;
+  }
+
+  private void encode(Job job) throws Exception {
+    long t0 = System.nanoTime();
+    ImageBuffer result = job.context.getBuffer();
+    String name = job.file.getFileName().toString();
+    int dot = name.lastIndexOf('.');
+    String outFormat = format != null ? format : name.substring(dot + 1);
+    String outName = format != null ? name.substring(0, dot + 1) + format : name;
+    BatchImageIO.write(result, output.resolve(outName), outFormat);
+    long encodeNanos = System.nanoTime() - t0;
+    job.context = null;
+    memory.release(job.permits);
+    job.permits = 0;
+    pixels.add((long) job.width * job.height);
+    System.out.printf(Locale.ROOT,
+      "%s: %dx%d -> %dx%d, read %d ms, apply %d ms, write %d ms%n",
+      name, job.width, job.height, result.getWidth(), result.getHeight(),
+      job.decodeNanos / 1_000_000, job.applyNanos / 1_000_000, encodeNanos / 1_000_000);
+  }
+
+  private void fail(Job job, Throwable e) {
+    failed.incrementAndGet();
+    job.context = null;
+    memory.release(job.permits);
+    job.permits = 0;
+    System.err.println(job.file.getFileName() + ": FAILED " + e);
+  }
+
+  @FunctionalInterface
+  private interface Work {
+    void run(Job job) throws Exception;
+  }
+
+  /**
+   * Workers that take jobs from one queue, run a step and pass them on to the next queue. When
+   * the last worker sees the end of input, it passes one end marker to each downstream worker.
+   */
+  private final class Stage {
+
+    private final String name;
+    private final int workers;
+    private final BlockingQueue<Job> in;
+    private final BlockingQueue<Job> out;
+    private final int downstreamWorkers;
+    private final Work work;
+    private final AtomicInteger running;
+    private final LongAdder busy = new LongAdder();
+    private final LongAdder starved = new LongAdder();
+    private final LongAdder blocked = new LongAdder();
+
+    Stage(String name, int workers, BlockingQueue<Job> in, BlockingQueue<Job> out,
+      int downstreamWorkers, Work work) {
+      this.name = name;
+      this.workers = workers;
+      this.in = in;
+      this.out = out;
+      this.downstreamWorkers = downstreamWorkers;
+      this.work = work;
+      this.running = new AtomicInteger(workers);
+    }
+
+    List<Thread> start() {
+      List<Thread> threads = new ArrayList<>();
+      for (int i = 1; i <= workers; i++) {
+        Thread thread = new Thread(this::loop, "distorio-batch-" + name + "-" + i);
+        thread.setDaemon(true);
+        thread.start();
+        threads.add(thread);
+      }
+      return threads;
+    }
+
+    private void loop() {
+      try {
+        while (true) {
+          long t0 = System.nanoTime();
+          Job job = in.take();
+          long t1 = System.nanoTime();
+          starved.add(t1 - t0);
+          if (job == Job.END) {
+            break;
+          }
+          boolean ok;
+          try {
+            work.run(job);
+            ok = true;
+          } catch (Throwable e) {
+            // Errors too, such as running out of direct memory on a large image: the file fails
+            // and gives back its memory, the worker carries on
+            fail(job, e);
+            ok = false;
+          }
+          long t2 = System.nanoTime();
+          busy.add(t2 - t1);
+          if (ok && out != null) {
+            out.put(job);
+            blocked.add(System.nanoTime() - t2);
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        // However this worker stops, the last one lets the next stage finish
+        if (running.decrementAndGet() == 0 && out != null) {
+          forwardEnd();
+        }
+      }
+    }
+
+    private void forwardEnd() {
+      boolean interrupted = Thread.interrupted();
+      for (int i = 0; i < downstreamWorkers; i++) {
+        while (true) {
+          try {
+            out.put(Job.END);
+            break;
+          } catch (InterruptedException e) {
+            interrupted = true;
+          }
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    void report(long wall) {
+      double total = (double) wall * workers;
+      System.out.printf(Locale.ROOT, "  %-6s %2d workers: %5.1f%% busy, %5.1f%% starved, %5.1f%% "
+          + "blocked%n", name, workers, 100 * busy.sum() / total, 100 * starved.sum() / total,
+        100 * blocked.sum() / total);
+    }
+  }
+}
@@ -0,0 +1,106 @@
+package io.distorio.batch;
+
+import io.distorio.operation.api.ImageOperation;
+import io.distorio.operation.api.OperationRegistry;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.imageio.ImageIO;
+
+/**
+ * Applies a {@link Recipe} to every image in a directory without any UI:
+ * <pre>
+ * java io.distorio.batch.BatchRunner --recipe nightly.recipe --input scans --output out
+ *   [--decoders N] [--workers N] [--encoders N] [--queue N] [--memory-mb N] [--format png]
+ * </pre>
+ * Each apply worker gets operations of its own from {@link OperationRegistry#createAllOperations()},
+ * so every plugin on the class path is available. Files flow through a {@link BatchPipeline}: {@code --decoders},
+ * {@code --workers} and {@code --encoders} set the threads of its decode, apply and encode stages,
+ * {@code --queue} how many images may wait between two stages, and {@code --memory-mb} (default
+ * half the heap) how much pixel memory files in flight may reserve. Timing is printed per file,
+ * followed by overall throughput and the utilisation of each stage. Exits with 1 if any file
+ * failed and 2 on bad usage.
+ */
+public final class BatchRunner {
+
+  private BatchRunner() {
+  }
+
+  public static void main(String[] args) {
+    Map<String, String> options = new HashMap<>();
+    for (int i = 0; i + 1 < args.length && args[i].startsWith("--"); i += 2) {
+      options.put(args[i].substring(2), args[i + 1]);
+    }
+    if (args.length % 2 != 0
+      || !options.keySet().containsAll(Set.of("recipe", "input", "output"))) {
+      System.err.println("Usage: BatchRunner --recipe <file> --input <dir> --output <dir>"
+        + " [--decoders N] [--workers N] [--encoders N] [--queue N] [--memory-mb N]"
+        + " [--format png]");
+      System.exit(2);
+    }
+    int cores = Runtime.getRuntime().availableProcessors();
+    BatchPipeline.Config config = new BatchPipeline.Config(
+      intOption(options, "decoders", Math.max(1, cores / 4)),
+      intOption(options, "workers", Math.max(1, cores / 2)),
+      intOption(options, "encoders", Math.max(1, cores / 4)),
+      intOption(options, "queue", 2),
+      intOption(options, "memory-mb", (int) (Runtime.getRuntime().maxMemory() / 2 >> 20)));
+    try {
+      Recipe recipe = Recipe.read(Paths.get(options.get("recipe")));
+      Set<String> known = loadOperations().keySet();
+      for (Recipe.Step step : recipe.steps()) {
+        if (!known.contains(step.operationId())) {
+          System.err.println("Unknown operation '" + step.operationId() + "'; available: "
+            + String.join(", ", known));
+          System.exit(2);
+        }
+      }
+      Path output = Paths.get(options.get("output"));
+      Files.createDirectories(output);
+      BatchPipeline pipeline = new BatchPipeline(recipe, output, options.get("format"), config,
+        BatchRunner::loadOperations);
+      int failed = pipeline.run(listImages(Paths.get(options.get("input"))));
+      System.exit(failed == 0 ? 0 : 1);
+    } catch (IOException | InterruptedException e) {
+      e.printStackTrace();
+      System.exit(2);
+    }
+  }
+
+  private static int intOption(Map<String, String> options, String name, int fallback) {
+    String value = options.get(name);
+    return value == null ? fallback : Integer.parseInt(value);
+  }
+
+  private static Map<String, ImageOperation> loadOperations() {
+    Map<String, ImageOperation> byId = new HashMap<>();
+    for (ImageOperation operation : OperationRegistry.createAllOperations()) {
+      byId.put(operation.getMetadata().getId(), operation);
+    }
+    return byId;
+  }
+
+  private static List<Path> listImages(Path directory) throws IOException {
+    Set<String> suffixes = Stream.of(ImageIO.getReaderFileSuffixes())
+      .map(s -> s.toLowerCase(Locale.ROOT))
+      .collect(Collectors.toSet());
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.filter(Files::isRegularFile)
+        .filter(f -> {
+          String name = f.getFileName().toString();
+          int dot = name.lastIndexOf('.');
+          return dot > 0 && suffixes.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+        })
+        .sorted()
+        .collect(Collectors.toList());
+    }
+  }
+}
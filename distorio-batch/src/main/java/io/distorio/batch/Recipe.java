@@ -0,0 +1,58 @@
+package io.distorio.batch;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The operations a batch run applies to every image, in order.
+ * <p>
+ * A recipe is a text file with one step per line: an operation id followed by
+ * {@code name=value} parameters, which the operation reads through
+ * {@code OperationContext.getParameter}. Blank lines and lines starting with {@code #} are
+ * ignored:
+ * <pre>
+ * # straighten scans and trim the scanner bed
+ * flip_right
+ * crop x=40 y=40 width=2400 height=3300
+ * </pre>
+ */
+public record Recipe(List<Step> steps) {
+
+  /**
+   * One operation and its parameters.
+   */
+  public record Step(String operationId, Map<String, String> parameters) {
+  }
+
+  public static Recipe read(Path file) throws IOException {
+    List<Step> steps = new ArrayList<>();
+    List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+    for (int i = 0; i < lines.size(); i++) {
+      String line = lines.get(i).strip();
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+      String[] tokens = line.split("\\s+");
+      Map<String, String> parameters = new LinkedHashMap<>();
+      for (int t = 1; t < tokens.length; t++) {
+        int eq = tokens[t].indexOf('=');
+        if (eq <= 0) {
+          throw new IOException(file + ":" + (i + 1) + ": expected name=value, got '"
+            + tokens[t] + "'");
+        }
+        parameters.put(tokens[t].substring(0, eq), tokens[t].substring(eq + 1));
+      }
+      steps.add(new Step(tokens[0], Map.copyOf(parameters)));
+    }
+    if (steps.isEmpty()) {
+      throw new IOException(file + ": recipe has no steps");
+    }
+    return new Recipe(List.copyOf(steps));
+  }
+}
@@ -0,0 +1,5 @@
+module io.distorio.batch {
+  requires io.distorio.operation.api;
+  requires java.base;
+  requires java.desktop;
+}
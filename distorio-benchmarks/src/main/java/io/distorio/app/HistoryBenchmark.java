@@ -0,0 +1,83 @@
+package io.distorio.app;
+
+import io.distorio.benchmarks.BenchmarkImages;
+import io.distorio.op.flip.FlipOperation;
+import io.distorio.operation.api.ImageBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Recording an operation in the {@link OperationHistory} and undoing it, the way the main window
+ * does after an operation and on undo, minus the worker threads.
+ * <p>
+ * {@code change} is either a 256x256 {@code region} painted over, so the undo step is a sparse XOR
+ * of a few tiles, or the whole image flipped {@code upside-down}, which changes every tile.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-Djava.awt.headless=true", "-Dprism.order=sw"})
+public class HistoryBenchmark {
+
+  @Param({"1024", "4096"})
+  int size;
+
+  @Param({"region", "upside-down"})
+  String change;
+
+  private final FlipOperation operation = new FlipOperation(FlipOperation.Direction.LEFT);
+  private OperationHistory history;
+  private AppImageContext before;
+  private ImageBuffer after;
+
+  @Setup
+  public void setUp() {
+    ImageBuffer original = BenchmarkImages.photo(size, size);
+    before = new AppImageContext();
+    before.setBuffer(original);
+    after = ImageBuffer.allocate(size, size);
+    int[] row = new int[size];
+    for (int y = 0; y < size; y++) {
+      if (change.equals("region")) {
+        original.getPixels(0, y, size, 1, row, 0, size);
+        if (y >= 128 && y < 384) {
+          for (int x = 128; x < 384; x++) {
+            row[x] = 0xFFFF0000;
+          }
+        }
+      } else {
+        original.getPixels(0, size - 1 - y, size, 1, row, 0, size);
+      }
+      after.setPixels(0, y, size, 1, row, 0, size);
+    }
+    history = new OperationHistory();
+  }
+
+  @TearDown
+  public void tearDown() {
+    history.close();
+  }
+
+  @Benchmark
+  public AppImageContext pushAndUndo() {
+    AppImageContext context = before.copy();
+    context.setBuffer(after);
+    history.push(operation, ImageDelta.between(before, context));
+    OperationHistory.Entry entry = history.peekUndo();
+    history.undone(entry, entry.getDelta().apply(context));
+    return context;
+  }
+}
@@ -0,0 +1,74 @@
+package io.distorio.app;
+
+import io.distorio.benchmarks.BenchmarkImages;
+import io.distorio.operation.api.ProgressMonitor;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import javafx.scene.image.Image;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Loading and saving through the code the main window uses: {@link ImageLoader.Decoder} and
+ * {@link ImageSaver.Encoder}, run on the benchmark thread instead of the loader's and saver's
+ * workers. Images above {@link ImageLoader#PREVIEW_EDGE} include the subsampled preview pass.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-Djava.awt.headless=true", "-Dprism.order=sw"})
+public class ImageIoBenchmark {
+
+  @Param({"1024", "4096"})
+  int size;
+
+  @Param({"png", "jpg"})
+  String format;
+
+  private Path directory;
+  private File input;
+  private File output;
+  private Image image;
+
+  @Setup
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("distorio-benchmark");
+    image = AppImageContext.wrap(BenchmarkImages.photo(size, size));
+    input = directory.resolve("input." + format).toFile();
+    output = directory.resolve("output." + format).toFile();
+    new ImageSaver.Encoder(image, null, input, format, ProgressMonitor.NONE).encode();
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(input.toPath());
+    Files.deleteIfExists(output.toPath());
+    Files.deleteIfExists(directory);
+  }
+
+  @Benchmark
+  public ImageLoader.LoadedImage load() throws IOException {
+    return new ImageLoader.Decoder(input, ProgressMonitor.NONE, (overview, width, height) -> {
+    }).decode();
+  }
+
+  @Benchmark
+  public File save() throws IOException {
+    return new ImageSaver.Encoder(image, null, output, format, ProgressMonitor.NONE).encode();
+  }
+}
@@ -0,0 +1,40 @@
+package io.distorio.benchmarks;
+
+import io.distorio.operation.api.ImageBuffer;
+
+/**
+ * Deterministic test images for the benchmarks.
+ */
+public final class BenchmarkImages {
+
+  private BenchmarkImages() {
+  }
+
+  /**
+   * An opaque image that compresses about as well as a photograph: smooth gradients with a little
+   * pseudo-random noise on top, the same for every run.
+   */
+  public static ImageBuffer photo(int width, int height) {
+    ImageBuffer image = ImageBuffer.allocate(width, height);
+    int[] row = new int[width];
+    int seed = 0x2545F491;
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        int noise = (seed & 15) - 8;
+        int r = channel(x * 255 / Math.max(1, width - 1) + noise);
+        int g = channel(y * 255 / Math.max(1, height - 1) + noise);
+        int b = channel((x + y) * 127 / Math.max(1, width + height - 2) + 64 + noise);
+        row[x] = 0xFF000000 | r << 16 | g << 8 | b;
+      }
+      image.setPixels(0, y, width, 1, row, 0, width);
+    }
+    return image;
+  }
+
+  private static int channel(int v) {
+    return Math.max(0, Math.min(255, v));
+  }
+}
@@ -0,0 +1,54 @@
+package io.distorio.benchmarks;
+
+import io.distorio.app.AppImageContext;
+import io.distorio.op.flip.FlipOperation;
+import io.distorio.operation.api.ImageBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link FlipOperation#apply} on square images of several sizes, through the application's own
+ * {@link AppImageContext}, as the operation executor runs it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-Djava.awt.headless=true", "-Dprism.order=sw"})
+public class FlipOperationBenchmark {
+
+  @Param({"512", "2048", "4096"})
+  int size;
+
+  @Param({"LEFT", "RIGHT"})
+  FlipOperation.Direction direction;
+
+  private ImageBuffer source;
+  private FlipOperation operation;
+  private AppImageContext context;
+
+  @Setup
+  public void setUp() {
+    source = BenchmarkImages.photo(size, size);
+    operation = new FlipOperation(direction);
+    context = new AppImageContext();
+  }
+
+  @Benchmark
+  public ImageBuffer apply() {
+    context.setBuffer(source);
+    operation.apply(context);
+    return context.getBuffer();
+  }
+}
@@ -0,0 +1,66 @@
+package io.distorio.benchmarks;
+
+import io.distorio.app.AppImageContext;
+import io.distorio.operation.api.ImageOperation.OperationContext;
+import io.distorio.operation.api.SelectionCapability;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reading the selection from an operation context: looked up by name and invoked reflectively, as
+ * the crop plugins used to on every call, against {@link OperationContext#lookup} of
+ * {@link SelectionCapability} and plain interface calls.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true"})
+public class SelectionLookupBenchmark {
+
+  // Declared as the interface, as operations see it
+  private OperationContext context;
+
+  @Setup
+  public void setUp() {
+    AppImageContext app = new AppImageContext();
+    app.setSelection(10, 20, 300, 400);
+    context = app;
+  }
+
+  @Benchmark
+  public double[] reflective() throws ReflectiveOperationException {
+    Method getSelectionX = context.getClass().getMethod("getSelectionX");
+    Method getSelectionY = context.getClass().getMethod("getSelectionY");
+    Method getSelectionWidth = context.getClass().getMethod("getSelectionWidth");
+    Method getSelectionHeight = context.getClass().getMethod("getSelectionHeight");
+    return new double[] {
+      (double) getSelectionX.invoke(context),
+      (double) getSelectionY.invoke(context),
+      (double) getSelectionWidth.invoke(context),
+      (double) getSelectionHeight.invoke(context)
+    };
+  }
+
+  @Benchmark
+  public double[] capability() {
+    SelectionCapability selection = context.lookup(SelectionCapability.class).orElseThrow();
+    return new double[] {
+      selection.getSelectionX(),
+      selection.getSelectionY(),
+      selection.getSelectionWidth(),
+      selection.getSelectionHeight()
+    };
+  }
+}
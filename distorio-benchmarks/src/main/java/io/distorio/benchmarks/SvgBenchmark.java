@@ -0,0 +1,71 @@
+package io.distorio.benchmarks;
+
+import io.distorio.ui.common.IconCache;
+import io.distorio.ui.common.SvgUtils;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javafx.scene.image.Image;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link SvgUtils#loadSvg} on the bundled toolbar icons: at the SVG's own size, as icons used to
+ * be rendered before being scaled down by their view, and at the 20 pixels of a toolbar button.
+ * {@code cachedIcon} is the lookup {@link IconCache} answers for every button after the first.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-Djava.awt.headless=true", "-Dprism.order=sw"})
+public class SvgBenchmark {
+
+  @Param({"crop.svg", "perspective_crop.svg", "file_open.svg"})
+  String icon;
+
+  private byte[] svg;
+  private final IconCache cache = new IconCache();
+
+  @Setup
+  public void setUp() throws IOException {
+    try (InputStream in = SvgUtils.class.getResourceAsStream("/META-INF/icons/" + icon)) {
+      if (in == null) {
+        throw new IOException("No icon " + icon);
+      }
+      svg = in.readAllBytes();
+    }
+  }
+
+  @Benchmark
+  public Image loadSvg() {
+    return SvgUtils.loadSvg(new ByteArrayInputStream(svg));
+  }
+
+  @Benchmark
+  public Image loadSvgRecoloured() {
+    return SvgUtils.loadSvg(new ByteArrayInputStream(svg), "#000000", "#FFFFFF");
+  }
+
+  @Benchmark
+  public Image loadSvgAtIconSize() {
+    return SvgUtils.loadSvg(new ByteArrayInputStream(svg), Map.of(), 20, 20);
+  }
+
+  @Benchmark
+  public Image cachedIcon() {
+    return cache.get(SvgUtils.class.getClassLoader(), "META-INF/icons/" + icon, 20, Map.of(), 1);
+  }
+}
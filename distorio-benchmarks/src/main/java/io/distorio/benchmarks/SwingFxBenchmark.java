@@ -0,0 +1,55 @@
+package io.distorio.benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.concurrent.TimeUnit;
+import javafx.embed.swing.SwingFXUtils;
+import javafx.scene.image.Image;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link SwingFXUtils} conversions between AWT and JavaFX images, which the SVG icons and
+ * clipboard go through.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-Djava.awt.headless=true", "-Dprism.order=sw"})
+public class SwingFxBenchmark {
+
+  @Param({"512", "2048"})
+  int size;
+
+  private BufferedImage awtImage;
+  private Image fxImage;
+
+  @Setup
+  public void setUp() {
+    awtImage = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+    int[] data = ((DataBufferInt) awtImage.getRaster().getDataBuffer()).getData();
+    BenchmarkImages.photo(size, size).getPixels(0, 0, size, size, data, 0, size);
+    fxImage = SwingFXUtils.toFXImage(awtImage, null);
+  }
+
+  @Benchmark
+  public Image toFxImage() {
+    return SwingFXUtils.toFXImage(awtImage, null);
+  }
+
+  @Benchmark
+  public BufferedImage fromFxImage() {
+    return SwingFXUtils.fromFXImage(fxImage, null);
+  }
+}
@@ -1,10 +1,18 @@
 package io.distorio.op.crop;
 
-import io.distorio.operation.api.ImageOperation;
-import java.lang.reflect.Method;
+import io.distorio.operation.api.GeometricOperation;
+import io.distorio.operation.api.ImageBuffer;
+import io.distorio.operation.api.PixelTransform;
+import io.distorio.operation.api.SelectionCapability;
+import io.distorio.operation.api.TiledImage;
 import java.util.Optional;
 
-public class CropOperation implements ImageOperation {
+/**
+ * Crops the image to the selection, rounded to whole pixels and clipped to the image. A buffer
+ * is cropped to a {@link ImageBuffer#view view} of itself, so no pixels are copied and undo can
+ * simply go back to the uncropped buffer; a tiled image becomes a lazy view of the region.
+ */
+public class CropOperation implements GeometricOperation {
 
   @Override
   public OperationMetadata getMetadata() {
@@ -36,34 +44,79 @@ public class CropOperation implements ImageOperation {
     };
   }
 
+  /**
+   * @return whether there is a selection to crop to; without one, the host lets the user draw it
+   */
   @Override
   public boolean prepare(OperationContext context) {
-    // Always ready for now
-    return true;
+    double[] selection = selection(context);
+    return selection != null && selection[2] > 0 && selection[3] > 0;
   }
 
+  /**
+   * Crops the preview proxy like the image itself; a view costs nothing at either size.
+   */
   @Override
   public void preview(OperationContext context) {
+    apply(context);
+  }
+
+  @Override
+  public PixelTransform getTransform(OperationContext context, int width, int height) {
+    int[] bounds = bounds(context, width, height);
+    return bounds == null ? null : PixelTransform.crop(bounds[0], bounds[1], bounds[2], bounds[3]);
   }
 
   @Override
   public void apply(OperationContext context) {
-    // Print selection bounds
-    try {
-      Method getSelectionX = context.getClass().getMethod("getSelectionX");
-      Method getSelectionY = context.getClass().getMethod("getSelectionY");
-      Method getSelectionWidth = context.getClass()
-        .getMethod("getSelectionWidth");
-      Method getSelectionHeight = context.getClass()
-        .getMethod("getSelectionHeight");
-      double x = (double) getSelectionX.invoke(context);
-      double y = (double) getSelectionY.invoke(context);
-      double w = (double) getSelectionWidth.invoke(context);
-      double h = (double) getSelectionHeight.invoke(context);
-      System.out.println("Crop selection: x=" + x + ", y=" + y + ", w=" + w + ", h=" + h);
-    } catch (Exception e) {
-      System.out.println("CropOperation: Unable to get selection from context");
+    if (context.isTiled()) {
+      TiledImage image = context.getTiledImage();
+      PixelTransform crop = getTransform(context, image.getWidth(), image.getHeight());
+      if (crop != null) {
+        context.setTiledImage(image.transform(crop));
+      }
+      return;
     }
+    ImageBuffer src = context.getBuffer();
+    if (src == null) return;
+    int[] bounds = bounds(context, src.getWidth(), src.getHeight());
+    if (bounds != null) {
+      context.setBuffer(src.view(bounds[0], bounds[1], bounds[2], bounds[3]));
+    }
+  }
+
+  /**
+   * @return x, y, width and height of the selection within a {@code width x height} image, or
+   * null if it is empty or covers the whole image
+   */
+  private static int[] bounds(OperationContext context, int width, int height) {
+    double[] selection = selection(context);
+    if (selection == null) {
+      return null;
+    }
+    int x1 = clamp(Math.round(selection[0]), width);
+    int y1 = clamp(Math.round(selection[1]), height);
+    int x2 = clamp(Math.round(selection[0] + selection[2]), width);
+    int y2 = clamp(Math.round(selection[1] + selection[3]), height);
+    if (x2 <= x1 || y2 <= y1 || (x2 - x1 == width && y2 - y1 == height)) {
+      return null;
+    }
+    return new int[] {x1, y1, x2 - x1, y2 - y1};
+  }
+
+  private static int clamp(long v, int max) {
+    return (int) Math.max(0, Math.min(max, v));
+  }
+
+  private static double[] selection(OperationContext context) {
+    return context.lookup(SelectionCapability.class)
+      .map(selection -> new double[] {
+        selection.getSelectionX(),
+        selection.getSelectionY(),
+        selection.getSelectionWidth(),
+        selection.getSelectionHeight()
+      })
+      .orElse(null);
   }
 
   @Override
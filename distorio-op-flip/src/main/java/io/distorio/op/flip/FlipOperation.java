@@ -1,13 +1,15 @@
 package io.distorio.op.flip;
 
-import io.distorio.operation.api.ImageOperation;
+import io.distorio.operation.api.GeometricOperation;
+import io.distorio.operation.api.ImageBuffer;
+import io.distorio.operation.api.ParallelPixels;
+import io.distorio.operation.api.PixelTransform;
+import io.distorio.operation.api.ProgressMonitor;
+import io.distorio.operation.api.TiledImage;
+import java.nio.IntBuffer;
 import java.util.Optional;
-import javafx.scene.image.Image;
-import javafx.scene.image.PixelReader;
-import javafx.scene.image.WritableImage;
-import javafx.scene.image.PixelWriter;
 
-public class FlipOperation implements ImageOperation {
+public class FlipOperation implements GeometricOperation {
 
   public enum Direction { LEFT, RIGHT }
   private final Direction direction;
@@ -53,39 +55,60 @@ public class FlipOperation implements ImageOperation {
 
   @Override
   public void preview(OperationContext context) {
+    apply(context);
   }
 
   @Override
   public void apply(OperationContext context) {
-    try {
-      java.lang.reflect.Method getImage = context.getClass().getMethod("getImage");
-      java.lang.reflect.Method setImage = context.getClass().getMethod("setImage", Image.class);
-      Image src = (Image) getImage.invoke(context);
-      if (src == null) return;
-      int width = (int) src.getWidth();
-      int height = (int) src.getHeight();
-      PixelReader reader = src.getPixelReader();
-      WritableImage rotated = new WritableImage(height, width); // Note swapped dimensions
-      PixelWriter writer = rotated.getPixelWriter();
+    if (context.isTiled()) {
+      applyTiled(context);
+      return;
+    }
+    ImageBuffer src = context.getBuffer();
+    if (src == null) return;
+    int width = src.getWidth();
+    int height = src.getHeight();
+    ImageBuffer rotated = ImageBuffer.allocate(height, width); // Note swapped dimensions
+    IntBuffer in = src.getPixels();
+    IntBuffer out = rotated.getPixels();
+    ProgressMonitor monitor = context.getProgressMonitor();
+    ParallelPixels.forEachRowBand(height, RotationKernel.BLOCK, monitor, (row, rowEnd) -> {
       if (direction == Direction.LEFT) {
-        // 90° counterclockwise: (x, y) -> (y, width-1-x)
-        for (int y = 0; y < height; y++) {
-          for (int x = 0; x < width; x++) {
-            writer.setArgb(y, width - 1 - x, reader.getArgb(x, y));
-          }
-        }
+        RotationKernel.rotateLeft(in, width, height, out, row, rowEnd);
       } else {
-        // 90° clockwise: (x, y) -> (height-1-y, x)
-        for (int y = 0; y < height; y++) {
-          for (int x = 0; x < width; x++) {
-            writer.setArgb(height - 1 - y, x, reader.getArgb(x, y));
-          }
-        }
+        RotationKernel.rotateRight(in, width, height, out, row, rowEnd);
       }
-      setImage.invoke(context, rotated);
-    } catch (Exception e) {
-      e.printStackTrace();
-    }
+    });
+    context.setBuffer(rotated);
+  }
+
+  @Override
+  public PixelTransform getTransform(OperationContext context, int width, int height) {
+    return direction == Direction.LEFT
+      ? PixelTransform.rotateLeft(width, height)
+      : PixelTransform.rotateRight(width, height);
+  }
+
+  /**
+   * Publishes a lazy rotated image: each destination tile is rendered on first use from the
+   * source region it maps to, so images larger than memory are never rotated as a whole.
+   */
+  private void applyTiled(OperationContext context) {
+    TiledImage src = context.getTiledImage();
+    int width = src.getWidth();
+    int height = src.getHeight();
+    context.setTiledImage(src.derive(height, width, (source, x, y, tile) -> {
+      int w = tile.getWidth();
+      int h = tile.getHeight();
+      // The source region is h x w; rotating it gives the w x h destination tile
+      if (direction == Direction.LEFT) {
+        ImageBuffer region = source.readRegion(width - y - h, x, h, w);
+        RotationKernel.rotateLeft(region.getPixels(), h, w, tile.getPixels(), 0, w);
+      } else {
+        ImageBuffer region = source.readRegion(y, height - x - w, h, w);
+        RotationKernel.rotateRight(region.getPixels(), h, w, tile.getPixels(), 0, w);
+      }
+    }));
   }
 
   @Override
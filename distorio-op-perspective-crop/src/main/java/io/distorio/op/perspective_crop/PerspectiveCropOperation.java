@@ -1,9 +1,25 @@
 package io.distorio.op.perspective_crop;
 
-import io.distorio.operation.api.ImageOperation;
+import io.distorio.operation.api.GeometricOperation;
+import io.distorio.operation.api.ImageBuffer;
+import io.distorio.operation.api.PixelTransform;
+import io.distorio.operation.api.Resampler;
+import io.distorio.operation.api.Resampler.Interpolation;
+import io.distorio.operation.api.SelectionCapability;
+import java.util.Locale;
 import java.util.Optional;
 
-public class PerspectiveCropOperation implements ImageOperation {
+/**
+ * Maps a quadrilateral of the image, such as a page photographed at an angle, onto an upright
+ * rectangle through the homography between the two.
+ * <p>
+ * Parameters: {@code corners}, eight comma-separated numbers giving the top-left, top-right,
+ * bottom-right and bottom-left corners as x,y pairs (default: the corners of the selection);
+ * {@code size}, the output size as {@code WIDTHxHEIGHT} (default: the longer of each pair of
+ * opposite edges); {@code interpolation}, {@code bilinear} (default) or {@code bicubic}. A
+ * bilinear crop is a {@link GeometricOperation} and fuses with its neighbours.
+ */
+public class PerspectiveCropOperation implements GeometricOperation {
 
   @Override
   public OperationMetadata getMetadata() {
@@ -35,36 +51,106 @@ public class PerspectiveCropOperation implements ImageOperation {
     };
   }
 
+  /**
+   * @return whether the corners are known; without them, the host lets the user select the area
+   */
   @Override
   public boolean prepare(OperationContext context) {
-    // Always ready for now
-    return true;
+    return corners(context) != null;
   }
 
+  /**
+   * Renders the crop bilinearly whatever the {@code interpolation} parameter says; on a proxy the
+   * size of the viewport, bicubic would not look any different.
+   */
   @Override
   public void preview(OperationContext context) {
-    // TODO: Show preview of perspective crop
+    render(context, Interpolation.BILINEAR);
+  }
+
+  @Override
+  public PixelTransform getTransform(OperationContext context, int width, int height) {
+    return interpolation(context) == Interpolation.BILINEAR ? transform(context) : null;
   }
 
   @Override
   public void apply(OperationContext context) {
-    // Print selection bounds
-    try {
-      java.lang.reflect.Method getSelectionX = context.getClass().getMethod("getSelectionX");
-      java.lang.reflect.Method getSelectionY = context.getClass().getMethod("getSelectionY");
-      java.lang.reflect.Method getSelectionWidth = context.getClass()
-        .getMethod("getSelectionWidth");
-      java.lang.reflect.Method getSelectionHeight = context.getClass()
-        .getMethod("getSelectionHeight");
-      double x = (double) getSelectionX.invoke(context);
-      double y = (double) getSelectionY.invoke(context);
-      double w = (double) getSelectionWidth.invoke(context);
-      double h = (double) getSelectionHeight.invoke(context);
-      System.out.println(
-        "Perspective crop selection: x=" + x + ", y=" + y + ", w=" + w + ", h=" + h);
-    } catch (Exception e) {
-      System.out.println("PerspectiveCropOperation: Unable to get selection from context");
+    render(context, interpolation(context));
+  }
+
+  private static void render(OperationContext context, Interpolation interpolation) {
+    PixelTransform transform = transform(context);
+    if (transform == null) return;
+    if (context.isTiled() && interpolation == Interpolation.BILINEAR) {
+      context.setTiledImage(context.getTiledImage().transform(transform));
+      return;
+    }
+    ImageBuffer src = context.getBuffer();
+    if (src == null) return;
+    context.setBuffer(Resampler.resample(src, transform, interpolation,
+      context.getProgressMonitor()));
+  }
+
+  /**
+   * @return the homography from the corners onto the output rectangle, or null without corners
+   */
+  private static PixelTransform transform(OperationContext context) {
+    double[] quad = corners(context);
+    if (quad == null) {
+      return null;
+    }
+    int width;
+    int height;
+    Optional<String> size = context.getParameter("size");
+    if (size.isPresent()) {
+      String[] parts = size.get().toLowerCase(Locale.ROOT).split("x");
+      if (parts.length != 2) {
+        throw new IllegalArgumentException("size must be WIDTHxHEIGHT: " + size.get());
+      }
+      width = Integer.parseInt(parts[0].trim());
+      height = Integer.parseInt(parts[1].trim());
+    } else {
+      width = (int) Math.round(Math.max(edge(quad, 0, 1), edge(quad, 3, 2)));
+      height = (int) Math.round(Math.max(edge(quad, 0, 3), edge(quad, 1, 2)));
+    }
+    if (width <= 0 || height <= 0) {
+      return null;
+    }
+    return PixelTransform.quadToRect(quad, width, height);
+  }
+
+  private static double edge(double[] quad, int from, int to) {
+    return Math.hypot(quad[2 * to] - quad[2 * from], quad[2 * to + 1] - quad[2 * from + 1]);
+  }
+
+  private static Interpolation interpolation(OperationContext context) {
+    return context.getParameter("interpolation")
+      .map(name -> Interpolation.valueOf(name.trim().toUpperCase(Locale.ROOT)))
+      .orElse(Interpolation.BILINEAR);
+  }
+
+  private static double[] corners(OperationContext context) {
+    Optional<String> corners = context.getParameter("corners");
+    if (corners.isPresent()) {
+      String[] parts = corners.get().split(",");
+      if (parts.length != 8) {
+        throw new IllegalArgumentException("corners needs 8 numbers: " + corners.get());
+      }
+      double[] quad = new double[8];
+      for (int i = 0; i < 8; i++) {
+        quad[i] = Double.parseDouble(parts[i].trim());
+      }
+      return quad;
+    }
+    SelectionCapability selection = context.lookup(SelectionCapability.class).orElse(null);
+    if (selection == null || !selection.hasSelection()) {
+      return null;
     }
+    double x = selection.getSelectionX();
+    double y = selection.getSelectionY();
+    double w = selection.getSelectionWidth();
+    double h = selection.getSelectionHeight();
+    return new double[] {x, y, x + w, y, x + w, y + h, x, y + h};
   }
 
   @Override
@@ -0,0 +1,106 @@
+package io.distorio.op.perspective_crop;
+
+import io.distorio.operation.api.ImageBuffer;
+import io.distorio.operation.api.ImageOperation;
+import io.distorio.operation.api.ParallelPixels;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import javafx.scene.image.Image;
+
+/**
+ * Throughput of {@link PerspectiveCropOperation} deskewing a synthetic page photo, in megapixels
+ * of output per second, for each interpolation.
+ * <p>
+ * Run with:
+ * <pre>
+ * MAVEN_OPTS="-Xmx4g" mvn -pl distorio-op-perspective-crop test-compile exec:java \
+ *   -Dexec.classpathScope=test \
+ *   -Dexec.mainClass=io.distorio.op.perspective_crop.PerspectiveCropBenchmark \
+ *   -Dexec.args="6000 5"
+ * </pre>
+ * Arguments are the square source edge in pixels (default 6000) and the number of timed
+ * iterations (default 5). The page covers most of the source, tilted and foreshortened, so the
+ * output is a little smaller than the source.
+ */
+public class PerspectiveCropBenchmark {
+
+  public static void main(String[] args) {
+    int size = args.length > 0 ? Integer.parseInt(args[0]) : 6000;
+    int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+    ImageBuffer source = ImageBuffer.allocate(size, size);
+    ParallelPixels.forEachRowBand(size, (row, rowEnd) -> {
+      int[] line = new int[size];
+      for (int y = row; y < rowEnd; y++) {
+        for (int x = 0; x < size; x++) {
+          line[x] = 0xFF000000 | (x * 31 + y * 17) & 0xFFFFFF;
+        }
+        source.setPixels(0, y, size, 1, line, 0, size);
+      }
+    });
+    double s = size;
+    String corners = String.format(Locale.ROOT, "%f,%f,%f,%f,%f,%f,%f,%f",
+      0.10 * s, 0.05 * s, 0.92 * s, 0.12 * s, 0.85 * s, 0.95 * s, 0.04 * s, 0.88 * s);
+
+    System.out.printf("Perspective crop benchmark: %dx%d source, %d iterations, %d pixel threads%n",
+      size, size, iterations, ParallelPixels.parallelism());
+    for (String interpolation : new String[] {"bilinear", "bicubic"}) {
+      BenchmarkContext context = new BenchmarkContext(source,
+        Map.of("corners", corners, "interpolation", interpolation));
+      PerspectiveCropOperation op = new PerspectiveCropOperation();
+      op.apply(context); // warm-up
+      double megapixels = (double) context.buffer.getWidth() * context.buffer.getHeight() / 1e6;
+      long best = Long.MAX_VALUE;
+      for (int i = 0; i < iterations; i++) {
+        context.buffer = source;
+        long start = System.nanoTime();
+        op.apply(context);
+        best = Math.min(best, System.nanoTime() - start);
+      }
+      double seconds = best / 1e9;
+      System.out.printf("  %-10s %dx%d output  best %8.1f ms  %8.1f MP/s%n", interpolation,
+        context.buffer.getWidth(), context.buffer.getHeight(), seconds * 1000,
+        megapixels / seconds);
+    }
+  }
+
+  /**
+   * Hands out its buffer without copying and answers parameters from a map, like a batch run.
+   */
+  private static final class BenchmarkContext implements ImageOperation.OperationContext {
+
+    private final Map<String, String> parameters;
+    private ImageBuffer buffer;
+
+    BenchmarkContext(ImageBuffer buffer, Map<String, String> parameters) {
+      this.buffer = buffer;
+      this.parameters = parameters;
+    }
+
+    @Override
+    public Image getImage() {
+      return buffer.toImage();
+    }
+
+    @Override
+    public void setImage(Image image) {
+      this.buffer = ImageBuffer.fromImage(image);
+    }
+
+    @Override
+    public ImageBuffer getBuffer() {
+      return buffer;
+    }
+
+    @Override
+    public void setBuffer(ImageBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public Optional<String> getParameter(String name) {
+      return Optional.ofNullable(parameters.get(name));
+    }
+  }
+}
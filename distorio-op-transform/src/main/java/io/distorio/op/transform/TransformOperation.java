@@ -1,9 +1,26 @@
 package io.distorio.op.transform;
 
-import io.distorio.operation.api.ImageOperation;
+import io.distorio.operation.api.GeometricOperation;
+import io.distorio.operation.api.ImageBuffer;
+import io.distorio.operation.api.PixelTransform;
+import io.distorio.operation.api.Resampler;
+import io.distorio.operation.api.Resampler.Interpolation;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-public class TransformOperation implements ImageOperation {
+/**
+ * Scales and rotates the image about its centre; the result is just large enough to hold the
+ * whole transformed image, and the corners it does not cover are transparent.
+ * <p>
+ * Parameters: {@code scale}, or {@code scale-x} and {@code scale-y} (default 1); {@code angle},
+ * clockwise in degrees (default 0); {@code quality}, one of {@code nearest}, {@code bilinear}
+ * (default), {@code bicubic} and {@code lanczos3}. {@link #preview} always uses nearest, which
+ * keeps up with a drag; a bilinear transform is a {@link GeometricOperation} and fuses with its
+ * neighbours. Lanczos-3 scales first, with its separable anti-aliasing kernel, then rotates the
+ * scaled image, as shrinking through a rotation would otherwise alias.
+ */
+public class TransformOperation implements GeometricOperation {
 
   @Override
   public OperationMetadata getMetadata() {
@@ -35,34 +52,120 @@ public class TransformOperation implements ImageOperation {
     };
   }
 
+  /**
+   * @return whether the host gives a scale or an angle; the application has no way to set them
+   * yet, so there the operation stays in preview mode and never applies
+   */
   @Override
   public boolean prepare(OperationContext context) {
-    // Always ready for now
-    return true;
+    return Stream.of("scale", "scale-x", "scale-y", "angle")
+      .anyMatch(name -> context.getParameter(name).isPresent());
   }
 
+  /**
+   * Renders the transform at {@link Interpolation#NEAREST} quality into {@code context}, which
+   * should be the host's {@link OperationContext#isPreview() preview} copy of the image.
+   */
   @Override
   public void preview(OperationContext context) {
+    render(context, Interpolation.NEAREST);
+  }
+
+  @Override
+  public PixelTransform getTransform(OperationContext context, int width, int height) {
+    return quality(context) == Interpolation.BILINEAR ? transform(context, width, height) : null;
   }
 
   @Override
   public void apply(OperationContext context) {
-    // Print selection bounds
-    try {
-      java.lang.reflect.Method getSelectionX = context.getClass().getMethod("getSelectionX");
-      java.lang.reflect.Method getSelectionY = context.getClass().getMethod("getSelectionY");
-      java.lang.reflect.Method getSelectionWidth = context.getClass()
-        .getMethod("getSelectionWidth");
-      java.lang.reflect.Method getSelectionHeight = context.getClass()
-        .getMethod("getSelectionHeight");
-      double x = (double) getSelectionX.invoke(context);
-      double y = (double) getSelectionY.invoke(context);
-      double w = (double) getSelectionWidth.invoke(context);
-      double h = (double) getSelectionHeight.invoke(context);
-      System.out.println("Transform selection: x=" + x + ", y=" + y + ", w=" + w + ", h=" + h);
-    } catch (Exception e) {
-      System.out.println("TransformOperation: Unable to get selection from context");
+    render(context, quality(context));
+  }
+
+  private static void render(OperationContext context, Interpolation quality) {
+    if (context.isTiled() && quality == Interpolation.BILINEAR) {
+      int width = context.getTiledImage().getWidth();
+      int height = context.getTiledImage().getHeight();
+      PixelTransform transform = transform(context, width, height);
+      if (transform != null) {
+        context.setTiledImage(context.getTiledImage().transform(transform));
+      }
+      return;
+    }
+    ImageBuffer src = context.getBuffer();
+    if (src == null) return;
+    double angle = parameter(context, "angle", 0);
+    double scaleX = parameter(context, "scale-x", parameter(context, "scale", 1));
+    double scaleY = parameter(context, "scale-y", parameter(context, "scale", 1));
+    // Any rotation, quarter turns included, leaves a transform that is not axis-aligned, which
+    // Lanczos could only sample with its unstretched kernel
+    if (quality == Interpolation.LANCZOS3 && angle % 360 != 0
+      && (scaleX != 1 || scaleY != 1)) {
+      int width = Math.max(1, (int) Math.round(src.getWidth() * scaleX));
+      int height = Math.max(1, (int) Math.round(src.getHeight() * scaleY));
+      src = Resampler.resample(src, PixelTransform.scale((double) width / src.getWidth(),
+        (double) height / src.getHeight(), width, height), quality, context.getProgressMonitor());
+      scaleX = 1;
+      scaleY = 1;
     }
+    PixelTransform transform = transform(src.getWidth(), src.getHeight(), scaleX, scaleY, angle);
+    if (transform == null) {
+      if (src != context.getBuffer()) {
+        context.setBuffer(src);
+      }
+      return;
+    }
+    context.setBuffer(Resampler.resample(src, transform, quality,
+      context.getProgressMonitor()));
+  }
+
+  private static PixelTransform transform(OperationContext context, int width, int height) {
+    return transform(width, height,
+      parameter(context, "scale-x", parameter(context, "scale", 1)),
+      parameter(context, "scale-y", parameter(context, "scale", 1)),
+      parameter(context, "angle", 0));
+  }
+
+  /**
+   * @return the transform that scales a {@code width x height} image and rotates it about its
+   * centre, or null if it would leave the image as it is
+   */
+  static PixelTransform transform(int width, int height, double scaleX, double scaleY,
+    double degrees) {
+    if (!(scaleX > 0) || !(scaleY > 0)) {
+      throw new IllegalArgumentException("Scale must be positive: " + scaleX + ", " + scaleY);
+    }
+    double cos;
+    double sin;
+    double turns = degrees / 90;
+    if (turns == Math.rint(turns)) {
+      // Exact for quarter turns, so that they are recognised as pixel-exact
+      int quarter = (int) Math.floorMod((long) turns, 4L);
+      cos = quarter == 0 ? 1 : quarter == 2 ? -1 : 0;
+      sin = quarter == 1 ? 1 : quarter == 3 ? -1 : 0;
+    } else {
+      cos = Math.cos(Math.toRadians(degrees));
+      sin = Math.sin(Math.toRadians(degrees));
+    }
+    double a = cos * scaleX, b = -sin * scaleY;
+    double d = sin * scaleX, e = cos * scaleY;
+    int outWidth = Math.max(1, (int) Math.round(Math.abs(a) * width + Math.abs(b) * height));
+    int outHeight = Math.max(1, (int) Math.round(Math.abs(d) * width + Math.abs(e) * height));
+    // Centre onto centre
+    double c = outWidth / 2.0 - (a * width / 2.0 + b * height / 2.0);
+    double f = outHeight / 2.0 - (d * width / 2.0 + e * height / 2.0);
+    PixelTransform transform = PixelTransform.affine(a, b, c, d, e, f, outWidth, outHeight);
+    return transform.isIdentity() && outWidth == width && outHeight == height ? null : transform;
+  }
+
+  private static Interpolation quality(OperationContext context) {
+    return context.getParameter("quality")
+      .map(name -> Interpolation.valueOf(name.trim().toUpperCase(Locale.ROOT)))
+      .orElse(Interpolation.BILINEAR);
+  }
+
+  private static double parameter(OperationContext context, String name, double fallback) {
+    return context.getParameter(name).map(String::trim).map(Double::parseDouble)
+      .orElse(fallback);
   }
 
   @Override
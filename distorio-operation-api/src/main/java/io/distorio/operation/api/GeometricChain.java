@@ -0,0 +1,79 @@
+package io.distorio.operation.api;
+
+/**
+ * Collects consecutive {@link GeometricOperation}s and renders them together. Hosts offer each
+ * operation to {@link #add}; when it returns false, or before anything else reads the image, they
+ * call {@link #flush} to resample the image once for the whole chain, or merely take a
+ * {@link ImageBuffer#view view} of it if the chain amounts to a crop:
+ * <pre>
+ * GeometricChain chain = new GeometricChain();
+ * for (ImageOperation op : operations) {
+ *   if (!(op instanceof GeometricOperation g) || !chain.add(g, context)) {
+ *     chain.flush(context);
+ *     op.apply(context);
+ *   }
+ * }
+ * chain.flush(context);
+ * </pre>
+ * Not thread-safe; use one chain per image.
+ */
+public final class GeometricChain {
+
+  private PixelTransform transform;
+  private int length;
+
+  /**
+   * Composes {@code operation}'s transform with the pending ones, without touching any pixels.
+   *
+   * @return false if the operation has no transform for this image; it must then be applied
+   * normally after {@link #flush}
+   */
+  public boolean add(GeometricOperation operation, ImageOperation.OperationContext context) {
+    int width;
+    int height;
+    if (transform != null) {
+      width = transform.getWidth();
+      height = transform.getHeight();
+    } else {
+      ImageBuffer buffer = context.getBuffer();
+      if (buffer == null) {
+        return false;
+      }
+      width = buffer.getWidth();
+      height = buffer.getHeight();
+    }
+    PixelTransform next = operation.getTransform(context, width, height);
+    if (next == null) {
+      return false;
+    }
+    transform = transform == null ? next : transform.then(next);
+    length++;
+    return true;
+  }
+
+  /**
+   * @return the number of operations waiting for {@link #flush}
+   */
+  public int size() {
+    return length;
+  }
+
+  /**
+   * Renders the pending operations into {@code context} with one resampling pass.
+   */
+  public void flush(ImageOperation.OperationContext context) {
+    if (transform == null) {
+      return;
+    }
+    PixelTransform pending = transform;
+    transform = null;
+    length = 0;
+    if (pending.isIdentity() && pending.getWidth() == context.getBuffer().getWidth()
+      && pending.getHeight() == context.getBuffer().getHeight()) {
+      return; // e.g. flip left then flip right
+    }
+    ImageBuffer view = Resampler.cropView(context.getBuffer(), pending);
+    context.setBuffer(view != null ? view
+      : Resampler.resample(context.getBuffer(), pending, context.getProgressMonitor()));
+  }
+}
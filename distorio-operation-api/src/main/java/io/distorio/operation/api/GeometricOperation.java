@@ -0,0 +1,19 @@
+package io.distorio.operation.api;
+
+/**
+ * An operation that only moves pixels around: its whole effect is a {@link PixelTransform}.
+ * Hosts may then compose it with neighbouring geometric operations and render the chain in a
+ * single {@link Resampler} pass (see {@link GeometricChain}) instead of calling
+ * {@link #apply(OperationContext)} for each, which must still work on its own.
+ */
+public interface GeometricOperation extends ImageOperation {
+
+  /**
+   * @return where this operation moves the pixels of a {@code width x height} image, given the
+   * parameters and selection of {@code context}; null if it cannot be expressed as a transform
+   * this time, in which case the host calls {@link #apply(OperationContext)}. The image of
+   * {@code context} may not yet reflect operations pending before this one; rely on
+   * {@code width} and {@code height} instead.
+   */
+  PixelTransform getTransform(OperationContext context, int width, int height);
+}
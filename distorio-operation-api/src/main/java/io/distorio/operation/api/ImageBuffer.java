@@ -0,0 +1,285 @@
+package io.distorio.operation.api;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.image.WritablePixelFormat;
+
+/**
+ * Off-heap pixel storage that operations read and write directly, without going through
+ * {@code PixelReader}/{@code PixelWriter} copies.
+ * <p>
+ * Pixels are premultiplied ARGB ints ({@link PixelFormat#getIntArgbPreInstance()}), one per pixel,
+ * row-major with no padding, in a direct native-order buffer. That is exactly the layout a
+ * {@link javafx.scene.image.PixelBuffer} accepts, so hosts can display a buffer without copying
+ * it, and the pixels stay out of the Java heap and out of GC pauses.
+ * <p>
+ * A buffer can also be a {@link #view} of a rectangle of another one: it shares the other
+ * buffer's storage, reaching its rows through an offset and a stride, so cropping copies nothing.
+ * A view keeps all of its parent's storage alive until it is {@link #compact compacted}. The
+ * region accessors work on views as they are; {@link #getPixels()} needs rows without gaps and
+ * compacts a view whose rows are not contiguous first.
+ * <p>
+ * Use absolute {@code get}/{@code put} on {@link #getPixels()}; the buffer's position is shared.
+ * Once a buffer has been handed to {@link ImageOperation.OperationContext#setBuffer}, it is owned
+ * by the host and must not be modified any more; neither may a buffer that has views, as writes
+ * show through to them. A single buffer holds at most {@code Integer.MAX_VALUE / 4} pixels.
+ */
+public final class ImageBuffer {
+
+  private static final WritablePixelFormat<IntBuffer> FORMAT = PixelFormat.getIntArgbPreInstance();
+
+  private final int width;
+  private final int height;
+  // Replaced as a whole when a view is compacted, so readers always see a consistent layout
+  private volatile Storage storage;
+
+  /**
+   * Where the pixels live: pixel (x, y) is at {@code offset + y * stride + x} in {@code pixels}.
+   * {@code parent} is the buffer a view was made of, until the view gets storage of its own.
+   */
+  private record Storage(IntBuffer pixels, int offset, int stride, ImageBuffer parent) {
+  }
+
+  private ImageBuffer(Storage storage, int width, int height) {
+    this.storage = storage;
+    this.width = width;
+    this.height = height;
+  }
+
+  /**
+   * Allocates a transparent {@code width x height} buffer.
+   */
+  public static ImageBuffer allocate(int width, int height) {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Invalid buffer size " + width + "x" + height);
+    }
+    long bytes = (long) width * height * Integer.BYTES;
+    if (bytes > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException(
+        "Image of " + width + "x" + height + " is too large for a single buffer");
+    }
+    IntBuffer pixels = ByteBuffer.allocateDirect((int) bytes)
+      .order(ByteOrder.nativeOrder())
+      .asIntBuffer();
+    return new ImageBuffer(new Storage(pixels, 0, width, null), width, height);
+  }
+
+  /**
+   * Copies the pixels of a JavaFX image into a new buffer.
+   */
+  public static ImageBuffer fromImage(Image image) {
+    int w = (int) image.getWidth();
+    int h = (int) image.getHeight();
+    ImageBuffer buffer = allocate(w, h);
+    image.getPixelReader().getPixels(0, 0, w, h, FORMAT, buffer.storage.pixels(), w);
+    return buffer;
+  }
+
+  /**
+   * Copies this buffer into a new, independent {@link WritableImage}.
+   */
+  public WritableImage toImage() {
+    Storage s = storage;
+    WritableImage image = new WritableImage(width, height);
+    image.getPixelWriter().setPixels(0, 0, width, height, FORMAT,
+      s.pixels().duplicate().position(s.offset()), s.stride());
+    return image;
+  }
+
+  /**
+   * Creates a {@code w x h} view of this buffer whose top-left corner is (x, y). No pixels are
+   * copied: the view reads and writes this buffer's storage.
+   */
+  public ImageBuffer view(int x, int y, int w, int h) {
+    if (x < 0 || y < 0 || w <= 0 || h <= 0 || x + w > width || y + h > height) {
+      throw new IllegalArgumentException("View " + w + "x" + h + " at (" + x + ", " + y
+        + ") is outside a " + width + "x" + height + " buffer");
+    }
+    if (x == 0 && y == 0 && w == width && h == height) {
+      return this;
+    }
+    Storage s = storage;
+    return new ImageBuffer(new Storage(s.pixels(), s.offset() + y * s.stride() + x, s.stride(),
+      this), w, h);
+  }
+
+  /**
+   * @return the buffer this one is a {@link #view} of, or null if it has storage of its own
+   */
+  public ImageBuffer getParent() {
+    return storage.parent();
+  }
+
+  /**
+   * Where a buffer's pixels lie in the storage it reads.
+   *
+   * @param storage all of that storage, as a buffer without gaps between its rows; the buffer
+   *                itself if it has storage of its own
+   * @param x       column of the buffer's top-left pixel in {@code storage}
+   * @param y       row of the buffer's top-left pixel in {@code storage}
+   */
+  public record Placement(ImageBuffer storage, int x, int y) {
+  }
+
+  /**
+   * @return where this buffer lies in the storage it currently reads, so that a host can display
+   * a view as a rectangle of that storage instead of {@link #compact compacting} it
+   */
+  public Placement getPlacement() {
+    Storage s = storage;
+    if (s.parent() == null) {
+      return new Placement(this, 0, 0);
+    }
+    int rows = s.pixels().capacity() / s.stride();
+    ImageBuffer whole = new ImageBuffer(new Storage(s.pixels(), 0, s.stride(), null), s.stride(),
+      rows);
+    return new Placement(whole, s.offset() % s.stride(), s.offset() / s.stride());
+  }
+
+  /**
+   * Gives a view storage of its own, so it no longer keeps its parent's pixels alive. Does nothing
+   * to buffers that are not views. Safe to call while other threads read the buffer.
+   *
+   * @return this buffer
+   */
+  public synchronized ImageBuffer compact() {
+    Storage s = storage;
+    if (s.parent() != null) {
+      ImageBuffer own = allocate(width, height);
+      copyTo(0, 0, width, height, own, 0, 0);
+      storage = own.storage;
+    }
+    return this;
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * @return the backing premultiplied ARGB pixels; index of (x, y) is {@code y * width + x}. A view
+   * whose rows are not contiguous in its parent is {@link #compact compacted} first; one spanning
+   * whole rows keeps sharing its parent's storage.
+   */
+  public IntBuffer getPixels() {
+    Storage s = storage;
+    if (s.offset() == 0 && s.stride() == width) {
+      return s.pixels();
+    }
+    synchronized (this) {
+      if (storage.stride() != width) {
+        compact();
+      }
+      s = storage;
+      if (s.offset() != 0) {
+        storage = s = new Storage(s.pixels().slice(s.offset(), width * height), 0, width,
+          s.parent());
+      }
+      return s.pixels();
+    }
+  }
+
+  /**
+   * @return the premultiplied ARGB value at (x, y)
+   */
+  public int get(int x, int y) {
+    Storage s = storage;
+    return s.pixels().get(s.offset() + y * s.stride() + x);
+  }
+
+  /**
+   * Stores a premultiplied ARGB value at (x, y).
+   */
+  public void set(int x, int y, int argbPre) {
+    Storage s = storage;
+    s.pixels().put(s.offset() + y * s.stride() + x, argbPre);
+  }
+
+  /**
+   * Copies a {@code w x h} region starting at (x, y) into {@code dst}.
+   *
+   * @param scan number of ints between the starts of consecutive rows in {@code dst}
+   */
+  public void getPixels(int x, int y, int w, int h, int[] dst, int offset, int scan) {
+    Storage s = storage;
+    for (int row = 0; row < h; row++) {
+      s.pixels().get(s.offset() + (y + row) * s.stride() + x, dst, offset + row * scan, w);
+    }
+  }
+
+  /**
+   * Copies a {@code w x h} region from {@code src} into this buffer at (x, y).
+   *
+   * @param scan number of ints between the starts of consecutive rows in {@code src}
+   */
+  public void setPixels(int x, int y, int w, int h, int[] src, int offset, int scan) {
+    Storage s = storage;
+    for (int row = 0; row < h; row++) {
+      s.pixels().put(s.offset() + (y + row) * s.stride() + x, src, offset + row * scan, w);
+    }
+  }
+
+  /**
+   * Copies the {@code w x h} region at (sx, sy) into {@code dst} at (dx, dy), row by row between
+   * the two storages.
+   */
+  public void copyTo(int sx, int sy, int w, int h, ImageBuffer dst, int dx, int dy) {
+    Storage from = storage;
+    Storage to = dst.storage;
+    for (int row = 0; row < h; row++) {
+      to.pixels().put(to.offset() + (dy + row) * to.stride() + dx, from.pixels(),
+        from.offset() + (sy + row) * from.stride() + sx, w);
+    }
+  }
+
+  /**
+   * Converts non-premultiplied ARGB values, as returned by {@code BufferedImage.getRGB}, to the
+   * premultiplied form stored in buffers.
+   */
+  public static void premultiply(int[] argb, int offset, int length) {
+    for (int i = offset, end = offset + length; i < end; i++) {
+      int p = argb[i];
+      int a = p >>> 24;
+      if (a == 255) {
+        continue;
+      }
+      if (a == 0) {
+        argb[i] = 0;
+        continue;
+      }
+      int r = ((p >> 16) & 0xFF) * a + 128;
+      int g = ((p >> 8) & 0xFF) * a + 128;
+      int b = (p & 0xFF) * a + 128;
+      // (t + (t >> 8)) >> 8 with t = c * a + 128 is c * a / 255, rounded
+      argb[i] = a << 24 | ((r + (r >> 8)) >> 8) << 16 | ((g + (g >> 8)) >> 8) << 8
+        | ((b + (b >> 8)) >> 8);
+    }
+  }
+
+  /**
+   * The inverse of {@link #premultiply}, for handing pixels to {@code BufferedImage.setRGB} or a
+   * {@code TYPE_INT_ARGB} raster.
+   */
+  public static void unpremultiply(int[] argbPre, int offset, int length) {
+    for (int i = offset, end = offset + length; i < end; i++) {
+      int p = argbPre[i];
+      int a = p >>> 24;
+      if (a == 255 || a == 0) {
+        continue;
+      }
+      int half = a >> 1;
+      int r = Math.min(255, (((p >> 16) & 0xFF) * 255 + half) / a);
+      int g = Math.min(255, (((p >> 8) & 0xFF) * 255 + half) / a);
+      int b = Math.min(255, ((p & 0xFF) * 255 + half) / a);
+      argbPre[i] = a << 24 | r << 16 | g << 8 | b;
+    }
+  }
+}
@@ -17,22 +17,30 @@ public interface ImageOperation {
   boolean prepare(OperationContext context);
 
   /**
-   * Called to preview the operation (e.g., show effect before confirmation).
+   * Called to preview the operation (e.g., show effect before confirmation). The host calls this
+   * on a background thread with a {@link OperationContext#isPreview() preview} context holding a
+   * downsampled copy of the image and a selection scaled to match, again every time the selection
+   * changes, and displays whatever image the context ends up with. Operations may use cheaper
+   * algorithms here than in {@link #apply}.
    */
   void preview(OperationContext context);
 
   /**
-   * Apply the operation to the image.
+   * Apply the operation to the image. The host may call this on a background thread; long-running
+   * operations should report through {@link OperationContext#getProgressMonitor()} and stop early
+   * when it is cancelled.
    */
   void apply(OperationContext context);
 
   /**
-   * Undo the operation.
+   * Called after the host has undone the operation by restoring the previous image from its
+   * history. Operations only need to reset state of their own here.
    */
   void undo(OperationContext context);
 
   /**
-   * Redo the operation.
+   * Called after the host has redone the operation by restoring the resulting image from its
+   * history.
    */
   void redo(OperationContext context);
 
@@ -64,5 +72,85 @@ public interface ImageOperation {
      * Set the current image. Expected type: javafx.scene.image.Image
      */
     void setImage(Image image);
+
+    /**
+     * Pixels of the current image, or null if there is no image. The default copies
+     * {@link #getImage()}; hosts override it to hand out their own storage. That storage may be on
+     * screen, so read it freely but write results into a buffer of your own and publish it with
+     * {@link #setBuffer(ImageBuffer)}.
+     */
+    default ImageBuffer getBuffer() {
+      Image image = getImage();
+      return image == null ? null : ImageBuffer.fromImage(image);
+    }
+
+    /**
+     * Replace the current image with {@code buffer}, which the host then owns. The default copies
+     * it into a new image for {@link #setImage(Image)}; hosts override it to display the buffer
+     * without copying.
+     */
+    default void setBuffer(ImageBuffer buffer) {
+      setImage(buffer.toImage());
+    }
+
+    /**
+     * True if the current image only exists as a {@link TiledImage}, typically because it is too
+     * large for one {@link ImageBuffer}. Operations that can work tile by tile should then use
+     * {@link #getTiledImage()}; {@link #getBuffer()} still works but materializes the whole image,
+     * and fails if it does not fit.
+     */
+    default boolean isTiled() {
+      return false;
+    }
+
+    /**
+     * The current image as tiles, or null if there is no image. The default views
+     * {@link #getBuffer()} as a tiled image.
+     */
+    default TiledImage getTiledImage() {
+      ImageBuffer buffer = getBuffer();
+      return buffer == null ? null : TiledImage.of(buffer);
+    }
+
+    /**
+     * Replace the current image with {@code image}, usually one created lazily with
+     * {@link TiledImage#derive}. The default materializes it for {@link #setBuffer(ImageBuffer)}.
+     */
+    default void setTiledImage(TiledImage image) {
+      setBuffer(image.toBuffer());
+    }
+
+    /**
+     * A named parameter for non-interactive runs, such as the values a batch recipe gives an
+     * operation instead of a selection made by the user. Empty when the host has none.
+     */
+    default Optional<String> getParameter(String name) {
+      return Optional.empty();
+    }
+
+    /**
+     * Progress and cancellation for the current call. Defaults to {@link ProgressMonitor#NONE}.
+     */
+    default ProgressMonitor getProgressMonitor() {
+      return ProgressMonitor.NONE;
+    }
+
+    /**
+     * An optional feature of this host, such as {@link SelectionCapability}, as a typed object to
+     * call directly. The default finds capabilities the context implements itself; hosts may
+     * override it to hand out separate objects.
+     */
+    default <T> Optional<T> lookup(Class<T> capability) {
+      return capability.isInstance(this) ? Optional.of(capability.cast(this)) : Optional.empty();
+    }
+
+    /**
+     * True if the context holds a downsampled proxy of the image for {@link #preview}, whose
+     * result is only displayed and then discarded. Cheaper, lower-quality algorithms are fine
+     * then.
+     */
+    default boolean isPreview() {
+      return false;
+    }
   }
 }
@@ -0,0 +1,90 @@
+package io.distorio.operation.api;
+
+import java.nio.IntBuffer;
+
+/**
+ * 2x box-filter downsampling for building mipmap levels (1/2, 1/4, 1/8, ...) of an image.
+ * <p>
+ * Each level pixel is the average of the 2x2 block beneath it. Pixels are premultiplied, so a plain
+ * per-channel average is also correct across transparent edges. An odd last row or column is
+ * averaged with itself. For tiled images see {@link TiledImage#downsample()}.
+ */
+public final class ImagePyramid {
+
+  private static final int MIN_BAND_ROWS = 16;
+
+  private ImagePyramid() {
+  }
+
+  /**
+   * @return the size of the next level for an edge of {@code size} pixels
+   */
+  public static int halfSize(int size) {
+    return (size + 1) / 2;
+  }
+
+  /**
+   * Creates the next level of {@code src}, in parallel. Rows are read through the region
+   * accessors, so a {@link ImageBuffer#view view} is not compacted.
+   */
+  public static ImageBuffer halve(ImageBuffer src) {
+    int srcWidth = src.getWidth();
+    int srcHeight = src.getHeight();
+    ImageBuffer dst = ImageBuffer.allocate(halfSize(srcWidth), halfSize(srcHeight));
+    ParallelPixels.forEachRowBand(dst.getHeight(), MIN_BAND_ROWS, (row, rowEnd) -> {
+      int[] top = new int[srcWidth];
+      int[] bottom = new int[srcWidth];
+      int[] out = new int[dst.getWidth()];
+      for (int y = row; y < rowEnd; y++) {
+        int sy = 2 * y;
+        src.getPixels(0, sy, srcWidth, 1, top, 0, srcWidth);
+        src.getPixels(0, Math.min(sy + 1, srcHeight - 1), srcWidth, 1, bottom, 0, srcWidth);
+        halveRow(top, bottom, srcWidth, out);
+        dst.setPixels(0, y, out.length, 1, out, 0, out.length);
+      }
+    });
+    return dst;
+  }
+
+  /**
+   * Computes destination rows {@code [rowStart, rowEnd)} of the next level of a
+   * {@code srcWidth x srcHeight} image. The destination is {@code halfSize(srcWidth)} pixels wide.
+   */
+  public static void halve(IntBuffer src, int srcWidth, int srcHeight, IntBuffer dst,
+    int rowStart, int rowEnd) {
+    int dstWidth = halfSize(srcWidth);
+    int[] top = new int[srcWidth];
+    int[] bottom = new int[srcWidth];
+    int[] out = new int[dstWidth];
+    for (int y = rowStart; y < rowEnd; y++) {
+      int sy = 2 * y;
+      src.get(sy * srcWidth, top, 0, srcWidth);
+      src.get(Math.min(sy + 1, srcHeight - 1) * srcWidth, bottom, 0, srcWidth);
+      halveRow(top, bottom, srcWidth, out);
+      dst.put(y * dstWidth, out, 0, dstWidth);
+    }
+  }
+
+  /**
+   * Averages the two source rows {@code top} and {@code bottom} into one destination row.
+   */
+  private static void halveRow(int[] top, int[] bottom, int srcWidth, int[] out) {
+    for (int x = 0; x < out.length; x++) {
+      int sx = 2 * x;
+      int sx1 = Math.min(sx + 1, srcWidth - 1);
+      out[x] = average(top[sx], top[sx1], bottom[sx], bottom[sx1]);
+    }
+  }
+
+  /**
+   * Rounded per-channel average of four ARGB pixels, two channels at a time: each 16-bit lane
+   * holds a sum of at most 4 * 255, so the lanes never carry into each other.
+   */
+  private static int average(int a, int b, int c, int d) {
+    int rb = (a & 0x00FF00FF) + (b & 0x00FF00FF) + (c & 0x00FF00FF) + (d & 0x00FF00FF)
+      + 0x00020002;
+    int ag = ((a >>> 8) & 0x00FF00FF) + ((b >>> 8) & 0x00FF00FF) + ((c >>> 8) & 0x00FF00FF)
+      + ((d >>> 8) & 0x00FF00FF) + 0x00020002;
+    return ((ag << 6) & 0xFF00FF00) | ((rb >>> 2) & 0x00FF00FF);
+  }
+}
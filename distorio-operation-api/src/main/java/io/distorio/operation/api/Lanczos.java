@@ -0,0 +1,258 @@
+package io.distorio.operation.api;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Lanczos-3 resampling for {@link Resampler}: the windowed sinc
+ * {@code sinc(x) sinc(x / 3)} over three source pixels on either side of each sample.
+ * <p>
+ * Scaling, with or without mirroring and translation, is separable: {@link #scale} filters the
+ * rows into an intermediate image, then its columns. Every output column and row uses the same
+ * weights all the way down or across, so they are computed once per axis up front. When an axis
+ * shrinks, the kernel is stretched by the same factor, so that every source pixel contributes and
+ * fine detail averages out instead of aliasing. The column pass adds whole weighted rows to
+ * accumulator arrays, a loop the JIT vectorizes.
+ * <p>
+ * Any other transform goes through {@link #sample}, which weighs the 6x6 pixels around a single
+ * point. Its kernel is not stretched, so transforms that also shrink the image by much should
+ * scale first.
+ */
+final class Lanczos {
+
+  static final int RADIUS = 3;
+  // Kernel table entries per pixel of distance
+  private static final int STEPS = 256;
+  private static final double[] KERNEL = new double[RADIUS * STEPS + 1];
+  // Fixed-point scale of the separable weights
+  private static final int BITS = 14;
+  private static final int ONE = 1 << BITS;
+
+  static {
+    for (int i = 0; i < KERNEL.length; i++) {
+      double x = (double) i / STEPS;
+      if (i == 0) {
+        KERNEL[i] = 1;
+      } else {
+        double px = Math.PI * x;
+        KERNEL[i] = RADIUS * Math.sin(px) * Math.sin(px / RADIUS) / (px * px);
+      }
+    }
+    KERNEL[KERNEL.length - 1] = 0;
+  }
+
+  private Lanczos() {
+  }
+
+  private static double kernel(double x) {
+    x = Math.abs(x);
+    return x >= RADIUS ? 0 : KERNEL[(int) (x * STEPS + 0.5)];
+  }
+
+  /**
+   * Precomputed weights of one axis: output pixel {@code i} is the sum over {@code t} of
+   * {@code weights[i * taps + t]} times source pixel {@code first[i] + t}, in units of
+   * {@link #ONE}. The weights of taps past an edge are folded onto the edge pixel, so an opaque
+   * image stays opaque up to its border; output pixels whose centre lies outside the source get
+   * no weights at all and stay transparent.
+   */
+  private record Weights(int[] first, int[] weights, int taps) {
+
+    /**
+     * @param inSize source pixels along the axis
+     * @param scale  source pixels per output pixel, negative when mirrored
+     * @param offset source coordinate of the output's left (or top) edge
+     */
+    static Weights of(int inSize, int outSize, double scale, double offset) {
+      double stretch = Math.max(1, Math.abs(scale));
+      double support = RADIUS * stretch;
+      int taps = 2 * (int) Math.ceil(support) + 1;
+      int[] first = new int[outSize];
+      int[] weights = new int[outSize * taps];
+      double[] k = new double[taps];
+      for (int i = 0; i < outSize; i++) {
+        // Source coordinate of the output pixel's centre, with integers on pixel centres
+        double centre = scale * (i + 0.5) + offset - 0.5;
+        int start = (int) Math.floor(centre - support) + 1;
+        first[i] = start;
+        if (centre < -0.5 || centre >= inSize - 0.5) {
+          continue;
+        }
+        Arrays.fill(k, 0);
+        double sum = 0;
+        for (int t = 0; t < taps; t++) {
+          double w = kernel((start + t - centre) / stretch);
+          k[Resampler.edge(start + t, inSize) - start] += w;
+          sum += w;
+        }
+        int total = 0;
+        for (int t = 0; t < taps; t++) {
+          int w = (int) Math.round(k[t] / sum * ONE);
+          weights[i * taps + t] = w;
+          total += w;
+        }
+        // Rounding error goes to the tap nearest the centre, so flat areas stay exactly flat
+        int nearest = (int) Math.max(0, Math.min(taps - 1, Math.round(centre) - start));
+        weights[i * taps + nearest] += ONE - total;
+      }
+      return new Weights(first, weights, taps);
+    }
+  }
+
+  /**
+   * Renders {@code source} through a transform whose {@code inverse} is
+   * {@link PixelTransform#isAxisAligned axis-aligned}, rows first, both passes in parallel.
+   */
+  static ImageBuffer scale(ImageBuffer source, PixelTransform inverse, int width, int height,
+    ProgressMonitor monitor) {
+    int sw = source.getWidth();
+    int sh = source.getHeight();
+    Weights columns = Weights.of(sw, width, inverse.get(0), inverse.get(2));
+    Weights rows = Weights.of(sh, height, inverse.get(4), inverse.get(5));
+
+    // Only the source rows some output row reads need filtering
+    int rowFrom = sh;
+    int rowTo = 0;
+    for (int y = 0; y < height; y++) {
+      rowFrom = Math.min(rowFrom, rows.first()[y]);
+      rowTo = Math.max(rowTo, rows.first()[y] + rows.taps());
+    }
+    rowFrom = Math.max(0, rowFrom);
+    rowTo = Math.min(sh, rowTo);
+    if (rowFrom >= rowTo) {
+      return ImageBuffer.allocate(width, height);
+    }
+    int from = rowFrom;
+    ImageBuffer filtered = ImageBuffer.allocate(width, rowTo - rowFrom);
+    ParallelPixels.forEachRowBand(rowTo - rowFrom, 16, (row, rowEnd) -> {
+      int[] in = new int[sw];
+      int[] out = new int[width];
+      for (int y = row; y < rowEnd; y++) {
+        source.getPixels(0, from + y, sw, 1, in, 0, sw);
+        filterRow(in, sw, columns, out, width);
+        filtered.setPixels(0, y, width, 1, out, 0, width);
+      }
+    });
+    monitor.checkCancelled();
+
+    ImageBuffer result = ImageBuffer.allocate(width, height);
+    int filteredHeight = rowTo - rowFrom;
+    ParallelPixels.forEachRowBand(height, 16, monitor, (row, rowEnd) -> {
+      int[] line = new int[width];
+      int[] a = new int[width];
+      int[] r = new int[width];
+      int[] g = new int[width];
+      int[] b = new int[width];
+      for (int y = row; y < rowEnd; y++) {
+        Arrays.fill(a, 0);
+        Arrays.fill(r, 0);
+        Arrays.fill(g, 0);
+        Arrays.fill(b, 0);
+        int first = rows.first()[y] - from;
+        for (int t = 0; t < rows.taps(); t++) {
+          int sy = first + t;
+          int w = rows.weights()[y * rows.taps() + t];
+          if (sy < 0 || sy >= filteredHeight || w == 0) {
+            continue;
+          }
+          filtered.getPixels(0, sy, width, 1, line, 0, width);
+          for (int x = 0; x < width; x++) {
+            int p = line[x];
+            a[x] += w * (p >>> 24);
+            r[x] += w * (p >> 16 & 0xFF);
+            g[x] += w * (p >> 8 & 0xFF);
+            b[x] += w * (p & 0xFF);
+          }
+        }
+        for (int x = 0; x < width; x++) {
+          line[x] = pack(a[x], r[x], g[x], b[x]);
+        }
+        result.setPixels(0, y, width, 1, line, 0, width);
+      }
+    });
+    return result;
+  }
+
+  private static void filterRow(int[] in, int sw, Weights columns, int[] out, int width) {
+    int taps = columns.taps();
+    for (int x = 0; x < width; x++) {
+      int start = columns.first()[x];
+      int from = Math.max(0, -start);
+      int to = Math.min(taps, sw - start);
+      int a = 0, r = 0, g = 0, b = 0;
+      for (int t = from, i = x * taps + from; t < to; t++, i++) {
+        int w = columns.weights()[i];
+        int p = in[start + t];
+        a += w * (p >>> 24);
+        r += w * (p >> 16 & 0xFF);
+        g += w * (p >> 8 & 0xFF);
+        b += w * (p & 0xFF);
+      }
+      out[x] = pack(a, r, g, b);
+    }
+  }
+
+  /**
+   * Rounds fixed-point channel sums to a valid premultiplied colour; the kernel's negative lobes
+   * overshoot at sharp edges.
+   */
+  private static int pack(int a, int r, int g, int b) {
+    int half = 1 << (BITS - 1);
+    int alpha = Resampler.clamp((a + half) >> BITS, 255);
+    return alpha << 24 | Resampler.clamp((r + half) >> BITS, alpha) << 16
+      | Resampler.clamp((g + half) >> BITS, alpha) << 8
+      | Resampler.clamp((b + half) >> BITS, alpha);
+  }
+
+  /**
+   * Lanczos-3 sample at (u, v), where integer coordinates are pixel centres, from the 6x6
+   * surrounding pixels with 10-bit weights per axis.
+   *
+   * @param wx scratch space for {@code 2 * RADIUS} weights, reused between calls
+   * @param wy the same, for the other axis
+   */
+  static int sample(IntBuffer src, int sw, int sh, double u, double v, int[] wx, int[] wy) {
+    if (Resampler.outside(sw, sh, u, v)) {
+      return 0;
+    }
+    int x0 = (int) Math.floor(u);
+    int y0 = (int) Math.floor(v);
+    weights10(u - x0, wx);
+    weights10(v - y0, wy);
+    int a = 0, r = 0, g = 0, b = 0;
+    for (int j = 0; j < 2 * RADIUS; j++) {
+      // Pixels past an edge read as the edge pixel
+      int y = Resampler.edge(y0 - RADIUS + 1 + j, sh);
+      int ra = 0, rr = 0, rg = 0, rb = 0;
+      for (int i = 0; i < 2 * RADIUS; i++) {
+        int p = src.get(y * sw + Resampler.edge(x0 - RADIUS + 1 + i, sw));
+        int w = wx[i];
+        ra += w * (p >>> 24);
+        rr += w * (p >> 16 & 0xFF);
+        rg += w * (p >> 8 & 0xFF);
+        rb += w * (p & 0xFF);
+      }
+      a += wy[j] * ra;
+      r += wy[j] * rr;
+      g += wy[j] * rg;
+      b += wy[j] * rb;
+    }
+    int alpha = Resampler.clamp((a + (1 << 19)) >> 20, 255);
+    return alpha << 24 | Resampler.clamp((r + (1 << 19)) >> 20, alpha) << 16
+      | Resampler.clamp((g + (1 << 19)) >> 20, alpha) << 8
+      | Resampler.clamp((b + (1 << 19)) >> 20, alpha);
+  }
+
+  /**
+   * Weights, summing to 1024, of the pixels {@code -2 .. 3} away from one that lies {@code t}
+   * (0 to 1) before the sample.
+   */
+  private static void weights10(double t, int[] w) {
+    int total = 0;
+    for (int i = 0; i < w.length; i++) {
+      w[i] = (int) Math.round(kernel(i - RADIUS + 1 - t) * 1024);
+      total += w[i];
+    }
+    w[RADIUS - 1 + (t >= 0.5 ? 1 : 0)] += 1024 - total;
+  }
+}
@@ -1,16 +1,56 @@
 package io.distorio.operation.api;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.ServiceLoader;
 
+/**
+ * The operations of every {@link ImageOperationProvider} plugin.
+ * <p>
+ * Plugins are discovered once, on first use, with {@link ServiceLoader#stream()}, which finds the
+ * provider classes without instantiating them. Each provider is instantiated, and its operation
+ * created, the first time that operation is asked for. Every caller then shares the same
+ * operation instances, so rebuilding the UI neither rescans the module path nor creates the
+ * operations again. Callers that run operations on several threads at once, whose state must not
+ * be shared, get instances of their own from {@link #createAllOperations()}. How long each step
+ * took per plugin is kept for {@link #getTimings()}.
+ */
 public class OperationRegistry {
 
+  // Initialized on first use of the registry
+  private static final class Discovered {
+    static final List<OperationWithProvider> OPERATIONS = discover();
+  }
+
+  /**
+   * How long one plugin took to start, in nanoseconds.
+   *
+   * @param provider      class name of the plugin's {@link ImageOperationProvider}
+   * @param discovery     finding the provider and loading its class
+   * @param instantiation instantiating the provider, or -1 if its operation was not used yet
+   * @param creation      {@link ImageOperationProvider#create()}, or -1 if not used yet
+   */
+  public record PluginTiming(String provider, long discovery, long instantiation,
+                             long creation) {
+  }
+
   public static List<ImageOperation> loadAllOperations() {
     List<ImageOperation> operations = new ArrayList<>();
-    ServiceLoader<ImageOperationProvider> loader = ServiceLoader.load(ImageOperationProvider.class);
-    for (ImageOperationProvider provider : loader) {
-      operations.add(provider.create());
+    for (OperationWithProvider operation : Discovered.OPERATIONS) {
+      operations.add(operation.getOperation());
+    }
+    return operations;
+  }
+
+  /**
+   * @return new instances of every operation, shared with no other caller; the plugins are still
+   * only discovered once
+   */
+  public static List<ImageOperation> createAllOperations() {
+    List<ImageOperation> operations = new ArrayList<>();
+    for (OperationWithProvider operation : Discovered.OPERATIONS) {
+      operations.add(operation.createOperation());
     }
     return operations;
   }
@@ -19,34 +59,81 @@ public class OperationRegistry {
    * Load all operations with their provider's classloader information
    */
   public static List<OperationWithProvider> loadAllOperationsWithProviders() {
+    return Discovered.OPERATIONS;
+  }
+
+  /**
+   * @return the start-up time of every plugin, in the order they were discovered
+   */
+  public static List<PluginTiming> getTimings() {
+    List<PluginTiming> timings = new ArrayList<>();
+    for (OperationWithProvider operation : Discovered.OPERATIONS) {
+      timings.add(operation.timing());
+    }
+    return timings;
+  }
+
+  private static List<OperationWithProvider> discover() {
     List<OperationWithProvider> operations = new ArrayList<>();
-    ServiceLoader<ImageOperationProvider> loader = ServiceLoader.load(ImageOperationProvider.class);
-    for (ImageOperationProvider provider : loader) {
-      ImageOperation operation = provider.create();
-      ClassLoader providerClassLoader = provider.getClass().getClassLoader();
-      operations.add(new OperationWithProvider(operation, providerClassLoader));
+    Iterator<ServiceLoader.Provider<ImageOperationProvider>> providers =
+      ServiceLoader.load(ImageOperationProvider.class).stream().iterator();
+    long start = System.nanoTime();
+    // hasNext() finds the next provider; type() loads its class without instantiating it
+    while (providers.hasNext()) {
+      ServiceLoader.Provider<ImageOperationProvider> provider = providers.next();
+      provider.type();
+      long found = System.nanoTime();
+      operations.add(new OperationWithProvider(provider, found - start));
+      start = found;
     }
-    return operations;
+    return List.copyOf(operations);
   }
 
   /**
    * Wrapper class to hold an operation and its provider's classloader
    */
   public static class OperationWithProvider {
-    private final ImageOperation operation;
-    private final ClassLoader providerClassLoader;
+    private final ServiceLoader.Provider<ImageOperationProvider> provider;
+    private final long discovery;
+    // Guarded by this
+    private ImageOperation operation;
+    private long instantiation = -1;
+    private long creation = -1;
 
-    public OperationWithProvider(ImageOperation operation, ClassLoader providerClassLoader) {
-      this.operation = operation;
-      this.providerClassLoader = providerClassLoader;
+    private OperationWithProvider(ServiceLoader.Provider<ImageOperationProvider> provider,
+      long discovery) {
+      this.provider = provider;
+      this.discovery = discovery;
     }
 
-    public ImageOperation getOperation() {
+    /**
+     * @return the operation, created by the provider the first time it is asked for
+     */
+    public synchronized ImageOperation getOperation() {
+      if (operation == null) {
+        long start = System.nanoTime();
+        ImageOperationProvider instance = provider.get();
+        long instantiated = System.nanoTime();
+        operation = instance.create();
+        instantiation = instantiated - start;
+        creation = System.nanoTime() - instantiated;
+      }
       return operation;
     }
 
+    /**
+     * @return a new instance of the operation, from a new instance of its provider
+     */
+    public ImageOperation createOperation() {
+      return provider.get().create();
+    }
+
     public ClassLoader getProviderClassLoader() {
-      return providerClassLoader;
+      return provider.type().getClassLoader();
+    }
+
+    private synchronized PluginTiming timing() {
+      return new PluginTiming(provider.type().getName(), discovery, instantiation, creation);
     }
   }
 }
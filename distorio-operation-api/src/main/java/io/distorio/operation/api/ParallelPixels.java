@@ -0,0 +1,178 @@
+package io.distorio.operation.api;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared fork-join executor for pixel loops. Operations describe their work as a range of rows or
+ * a grid of tiles, and this class splits it recursively across a pool sized to the machine.
+ * <p>
+ * Tasks must only write pixels that belong to the range or tile they were handed; that is the only
+ * synchronization contract. Calls made from inside the pool (e.g. a tile task that itself uses
+ * {@code forEachRowBand}) run as nested fork-join tasks instead of blocking a worker.
+ */
+public final class ParallelPixels {
+
+  /**
+   * Default edge length for {@link #forEachTile(int, int, TileTask)}.
+   */
+  public static final int DEFAULT_TILE_SIZE = 256;
+
+  /**
+   * Work units per worker thread. Oversplitting lets work stealing even out bands that take
+   * longer than others (e.g. edges of a rotated image that are mostly empty).
+   */
+  private static final int SPLITS_PER_THREAD = 4;
+
+  private static final ForkJoinPool POOL = createPool();
+
+  private ParallelPixels() {
+  }
+
+  /**
+   * Processes rows {@code [row, rowEnd)} of a band.
+   */
+  @FunctionalInterface
+  public interface RowTask {
+
+    void process(int row, int rowEnd);
+  }
+
+  /**
+   * Processes the tile with top-left corner (x, y); width and height are clipped to the image.
+   */
+  @FunctionalInterface
+  public interface TileTask {
+
+    void process(int x, int y, int width, int height);
+  }
+
+  /**
+   * @return the number of worker threads pixel work is spread over
+   */
+  public static int parallelism() {
+    return POOL.getParallelism();
+  }
+
+  /**
+   * Splits {@code [0, height)} into row bands and runs them in parallel, returning once every band
+   * has finished. Bands are at least one row.
+   */
+  public static void forEachRowBand(int height, RowTask task) {
+    forEachRowBand(height, 1, task);
+  }
+
+  /**
+   * Splits {@code [0, height)} into row bands of at least {@code minRows} rows and runs them in
+   * parallel, returning once every band has finished.
+   */
+  public static void forEachRowBand(int height, int minRows, RowTask task) {
+    if (height <= 0) {
+      return;
+    }
+    int grain = Math.max(Math.max(1, minRows),
+      ceilDiv(height, parallelism() * SPLITS_PER_THREAD));
+    run(new RangeAction(0, height, grain, task));
+  }
+
+  /**
+   * Like {@link #forEachRowBand(int, int, RowTask)}, but reports completed rows to
+   * {@code monitor} and stops scheduling bands once it is cancelled, in which case a
+   * {@link java.util.concurrent.CancellationException} is thrown after running bands finish.
+   */
+  public static void forEachRowBand(int height, int minRows, ProgressMonitor monitor,
+    RowTask task) {
+    AtomicInteger done = new AtomicInteger();
+    forEachRowBand(height, minRows, (row, rowEnd) -> {
+      if (monitor.isCancelled()) {
+        return;
+      }
+      task.process(row, rowEnd);
+      monitor.progress((double) done.addAndGet(rowEnd - row) / height);
+    });
+    monitor.checkCancelled();
+  }
+
+  /**
+   * Splits a {@code width x height} image into square tiles of {@link #DEFAULT_TILE_SIZE} and runs
+   * them in parallel.
+   */
+  public static void forEachTile(int width, int height, TileTask task) {
+    forEachTile(width, height, DEFAULT_TILE_SIZE, task);
+  }
+
+  /**
+   * Splits a {@code width x height} image into square tiles of {@code tileSize} and runs them in
+   * parallel, returning once every tile has finished.
+   */
+  public static void forEachTile(int width, int height, int tileSize, TileTask task) {
+    if (width <= 0 || height <= 0) {
+      return;
+    }
+    int tilesX = ceilDiv(width, tileSize);
+    int tilesY = ceilDiv(height, tileSize);
+    int tiles = tilesX * tilesY;
+    int grain = Math.max(1, tiles / (parallelism() * SPLITS_PER_THREAD));
+    run(new RangeAction(0, tiles, grain, (first, end) -> {
+      for (int i = first; i < end; i++) {
+        int x = (i % tilesX) * tileSize;
+        int y = (i / tilesX) * tileSize;
+        task.process(x, y, Math.min(tileSize, width - x), Math.min(tileSize, height - y));
+      }
+    }));
+  }
+
+  private static void run(RangeAction action) {
+    if (ForkJoinTask.inForkJoinPool()) {
+      action.invoke();
+    } else {
+      POOL.invoke(action);
+    }
+  }
+
+  private static int ceilDiv(int a, int b) {
+    return (a + b - 1) / b;
+  }
+
+  private static ForkJoinPool createPool() {
+    int threads = Integer.getInteger("distorio.pixel.threads",
+      Runtime.getRuntime().availableProcessors());
+    return new ForkJoinPool(Math.max(1, threads), pool -> {
+      ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+      thread.setName("distorio-pixels-" + thread.getPoolIndex());
+      thread.setDaemon(true);
+      return thread;
+    }, null, false);
+  }
+
+  /**
+   * Recursively halves an index range until it is no larger than the grain size.
+   */
+  private static final class RangeAction extends RecursiveAction {
+
+    private final int start;
+    private final int end;
+    private final int grain;
+    private final RowTask task;
+
+    RangeAction(int start, int end, int grain, RowTask task) {
+      this.start = start;
+      this.end = end;
+      this.grain = grain;
+      this.task = task;
+    }
+
+    @Override
+    protected void compute() {
+      if (end - start <= grain) {
+        task.process(start, end);
+        return;
+      }
+      int mid = (start + end) >>> 1;
+      invokeAll(new RangeAction(start, mid, grain, task), new RangeAction(mid, end, grain, task));
+    }
+  }
+}
@@ -0,0 +1,247 @@
+package io.distorio.operation.api;
+
+import java.util.Arrays;
+
+/**
+ * A projective mapping from the pixels of a source image to those of a destination image of a
+ * given size, as a 3x3 matrix in homogeneous coordinates:
+ * <pre>
+ * x' = (m0 x + m1 y + m2) / (m6 x + m7 y + m8)
+ * y' = (m3 x + m4 y + m5) / (m6 x + m7 y + m8)
+ * </pre>
+ * Coordinates are continuous: pixel (i, j) covers {@code [i, i + 1) x [j, j + 1)}, so its centre is
+ * at (i + 0.5, j + 0.5). Transforms compose with {@link #then}, which is what lets a chain of
+ * {@link GeometricOperation}s be rendered by a single {@link Resampler} pass. Immutable.
+ */
+public final class PixelTransform {
+
+  private static final double EPSILON = 1e-9;
+
+  private final double[] m;
+  private final int width;
+  private final int height;
+
+  private PixelTransform(double[] m, int width, int height) {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Invalid output size " + width + "x" + height);
+    }
+    this.m = m;
+    this.width = width;
+    this.height = height;
+  }
+
+  /**
+   * A general projective transform; {@code matrix} holds the nine entries row by row.
+   */
+  public static PixelTransform projective(double[] matrix, int width, int height) {
+    if (matrix.length != 9) {
+      throw new IllegalArgumentException("A projective matrix has 9 entries");
+    }
+    return new PixelTransform(normalize(matrix.clone()), width, height);
+  }
+
+  /**
+   * {@code x' = a x + b y + c, y' = d x + e y + f}.
+   */
+  public static PixelTransform affine(double a, double b, double c, double d, double e, double f,
+    int width, int height) {
+    return new PixelTransform(new double[] {a, b, c, d, e, f, 0, 0, 1}, width, height);
+  }
+
+  /**
+   * Leaves a {@code width x height} image as it is.
+   */
+  public static PixelTransform identity(int width, int height) {
+    return affine(1, 0, 0, 0, 1, 0, width, height);
+  }
+
+  /**
+   * Rotates a {@code width x height} image 90° counterclockwise.
+   */
+  public static PixelTransform rotateLeft(int width, int height) {
+    return affine(0, 1, 0, -1, 0, width, height, width);
+  }
+
+  /**
+   * Rotates a {@code width x height} image 90° clockwise.
+   */
+  public static PixelTransform rotateRight(int width, int height) {
+    return affine(0, -1, height, 1, 0, 0, height, width);
+  }
+
+  /**
+   * Scales by ({@code sx}, {@code sy}) about the origin.
+   */
+  public static PixelTransform scale(double sx, double sy, int width, int height) {
+    return affine(sx, 0, 0, 0, sy, 0, width, height);
+  }
+
+  /**
+   * Moves every pixel by ({@code dx}, {@code dy}).
+   */
+  public static PixelTransform translate(double dx, double dy, int width, int height) {
+    return affine(1, 0, dx, 0, 1, dy, width, height);
+  }
+
+  /**
+   * Keeps the {@code width x height} region whose top-left corner is (x, y).
+   */
+  public static PixelTransform crop(int x, int y, int width, int height) {
+    return affine(1, 0, -x, 0, 1, -y, width, height);
+  }
+
+  /**
+   * The homography that maps the quadrilateral {@code quad} onto a whole {@code width x height}
+   * image, as used to deskew a photographed page.
+   *
+   * @param quad x and y of the corners that become the top-left, top-right, bottom-right and
+   *             bottom-left corners of the output, in that order
+   * @throws IllegalArgumentException if three of the corners lie on one line
+   */
+  public static PixelTransform quadToRect(double[] quad, int width, int height) {
+    if (quad.length != 8) {
+      throw new IllegalArgumentException("A quadrilateral has 4 corners");
+    }
+    double x0 = quad[0], y0 = quad[1], x1 = quad[2], y1 = quad[3];
+    double x2 = quad[4], y2 = quad[5], x3 = quad[6], y3 = quad[7];
+    // Unit square to quad (Heckbert); g and h vanish when the quad is a parallelogram
+    double sx = x0 - x1 + x2 - x3;
+    double sy = y0 - y1 + y2 - y3;
+    double dx1 = x1 - x2, dx2 = x3 - x2, dy1 = y1 - y2, dy2 = y3 - y2;
+    double det = dx1 * dy2 - dx2 * dy1;
+    if (Math.abs(det) < EPSILON) {
+      throw new IllegalArgumentException("Degenerate quadrilateral " + Arrays.toString(quad));
+    }
+    double g = (sx * dy2 - dx2 * sy) / det;
+    double h = (dx1 * sy - sx * dy1) / det;
+    double[] squareToQuad = {
+      x1 - x0 + g * x1, x3 - x0 + h * x3, x0,
+      y1 - y0 + g * y1, y3 - y0 + h * y3, y0,
+      g, h, 1
+    };
+    PixelTransform rectToQuad = scale(1.0 / width, 1.0 / height, 1, 1)
+      .then(new PixelTransform(squareToQuad, 1, 1));
+    try {
+      return rectToQuad.inverse(width, height);
+    } catch (IllegalStateException e) {
+      throw new IllegalArgumentException("Degenerate quadrilateral " + Arrays.toString(quad), e);
+    }
+  }
+
+  /**
+   * @return this transform followed by {@code next}, producing {@code next}'s output size
+   */
+  public PixelTransform then(PixelTransform next) {
+    double[] a = next.m;
+    double[] b = m;
+    double[] r = new double[9];
+    for (int row = 0; row < 3; row++) {
+      for (int col = 0; col < 3; col++) {
+        r[row * 3 + col] = a[row * 3] * b[col] + a[row * 3 + 1] * b[3 + col]
+          + a[row * 3 + 2] * b[6 + col];
+      }
+    }
+    return new PixelTransform(normalize(r), next.width, next.height);
+  }
+
+  /**
+   * @return the mapping from destination back to source coordinates, with the given source size
+   * as its output size
+   */
+  public PixelTransform inverse(int sourceWidth, int sourceHeight) {
+    double a = m[0], b = m[1], c = m[2];
+    double d = m[3], e = m[4], f = m[5];
+    double g = m[6], h = m[7], i = m[8];
+    double ca = e * i - f * h;
+    double cb = -(d * i - f * g);
+    double cc = d * h - e * g;
+    double det = a * ca + b * cb + c * cc;
+    if (Math.abs(det) < EPSILON) {
+      throw new IllegalStateException("Transform is not invertible");
+    }
+    double[] r = {
+      ca / det, -(b * i - c * h) / det, (b * f - c * e) / det,
+      cb / det, (a * i - c * g) / det, -(a * f - c * d) / det,
+      cc / det, -(a * h - b * g) / det, (a * e - b * d) / det
+    };
+    return new PixelTransform(normalize(r), sourceWidth, sourceHeight);
+  }
+
+  /**
+   * @return whether the bottom row is (0, 0, 1), i.e. straight lines stay parallel
+   */
+  public boolean isAffine() {
+    return Math.abs(m[6]) < EPSILON && Math.abs(m[7]) < EPSILON;
+  }
+
+  /**
+   * @return whether rows map to rows and columns to columns: any mix of scaling, mirroring and
+   * translation, which can be resampled one axis at a time
+   */
+  public boolean isAxisAligned() {
+    return isAffine() && isZero(m[1]) && isZero(m[3]);
+  }
+
+  /**
+   * @return whether every destination pixel is exactly one source pixel: a combination of 90°
+   * rotations, mirroring and whole-pixel translation, which needs no interpolation
+   */
+  public boolean isPixelExact() {
+    if (!isAffine()) {
+      return false;
+    }
+    boolean axisAligned = isZero(m[1]) && isZero(m[3]) && isUnit(m[0]) && isUnit(m[4]);
+    boolean swapped = isZero(m[0]) && isZero(m[4]) && isUnit(m[1]) && isUnit(m[3]);
+    return (axisAligned || swapped) && isInteger(m[2]) && isInteger(m[5]);
+  }
+
+  /**
+   * @return whether this transform leaves an image of its output size unchanged
+   */
+  public boolean isIdentity() {
+    return isAffine() && isZero(m[0] - 1) && isZero(m[1]) && isZero(m[2]) && isZero(m[3])
+      && isZero(m[4] - 1) && isZero(m[5]);
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * @return entry {@code index} of the matrix, row by row, scaled so that the last entry is 1
+   */
+  public double get(int index) {
+    return m[index];
+  }
+
+  @Override
+  public String toString() {
+    return "PixelTransform" + Arrays.toString(m) + " -> " + width + "x" + height;
+  }
+
+  private static double[] normalize(double[] r) {
+    double scale = r[8];
+    if (Math.abs(scale) > EPSILON && scale != 1) {
+      for (int i = 0; i < 9; i++) {
+        r[i] /= scale;
+      }
+    }
+    return r;
+  }
+
+  private static boolean isZero(double v) {
+    return Math.abs(v) < EPSILON;
+  }
+
+  private static boolean isUnit(double v) {
+    return Math.abs(Math.abs(v) - 1) < EPSILON;
+  }
+
+  private static boolean isInteger(double v) {
+    return Math.abs(v - Math.rint(v)) < EPSILON;
+  }
+}
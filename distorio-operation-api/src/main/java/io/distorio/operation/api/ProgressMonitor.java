@@ -0,0 +1,49 @@
+package io.distorio.operation.api;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Progress and cancellation channel between a running operation and the host. Operations report
+ * progress as they go and poll {@link #isCancelled()} (or call {@link #checkCancelled()}) between
+ * units of work; the host decides where progress is shown and when to cancel.
+ * <p>
+ * Implementations must be safe to call from any thread, including pixel worker threads.
+ */
+public interface ProgressMonitor {
+
+  /**
+   * A monitor that ignores progress and is never cancelled, for synchronous callers.
+   */
+  ProgressMonitor NONE = new ProgressMonitor() {
+    @Override
+    public void progress(double fraction) {
+    }
+
+    @Override
+    public boolean isCancelled() {
+      return false;
+    }
+  };
+
+  /**
+   * Reports overall progress.
+   *
+   * @param fraction completed fraction between 0 and 1
+   */
+  void progress(double fraction);
+
+  /**
+   * @return true once the host has asked the operation to stop
+   */
+  boolean isCancelled();
+
+  /**
+   * Throws {@link CancellationException} if the operation has been cancelled. Operations that
+   * abort this way must leave the context untouched.
+   */
+  default void checkCancelled() {
+    if (isCancelled()) {
+      throw new CancellationException("Operation cancelled");
+    }
+  }
+}
@@ -0,0 +1,429 @@
+package io.distorio.operation.api;
+
+import java.nio.IntBuffer;
+
+/**
+ * Renders an {@link ImageBuffer} through a {@link PixelTransform} in one pass: every destination
+ * pixel is mapped back into the source and sampled there, so the cost is one read per output pixel
+ * however many transforms were composed. A destination pixel whose centre maps outside the source
+ * is transparent, such as the corners a rotation uncovers; inside, interpolation reads past the
+ * edges as the nearest edge pixel, so an opaque image stays opaque up to its border.
+ * <p>
+ * Pixel-exact transforms (90° rotations, mirroring, whole-pixel crops) copy source pixels as they
+ * are; everything else is interpolated in premultiplied space, bilinearly unless another
+ * {@link Interpolation} is asked for. The output is rendered in tiles of {@value #SPAN} rows by
+ * {@value #SPAN} columns, so the source pixels a tile reads stay in cache from one row to the
+ * next, and bands of tiles run in parallel on {@link ParallelPixels}.
+ */
+public final class Resampler {
+
+  /**
+   * How destination pixels that fall between source pixels are computed.
+   */
+  public enum Interpolation {
+    /**
+     * The nearest source pixel: blocky, but the cheapest, for previews that must keep up with
+     * the mouse.
+     */
+    NEAREST,
+    /**
+     * Weighted average of the 2x2 nearest source pixels.
+     */
+    BILINEAR,
+    /**
+     * Catmull-Rom spline through the 4x4 nearest source pixels: sharper than bilinear, at about
+     * four times the cost per pixel.
+     */
+    BICUBIC,
+    /**
+     * Lanczos-3 windowed sinc: the sharpest, for final output. Scaling without rotation is done
+     * one axis at a time with precomputed weights, widened when shrinking so that it does not
+     * alias; other transforms sample 6x6 source pixels without that widening (see
+     * {@link Lanczos}).
+     */
+    LANCZOS3
+  }
+
+  // Edge length of the output tiles the general path renders
+  private static final int SPAN = 64;
+
+  private Resampler() {
+  }
+
+  /**
+   * @return a new buffer of the transform's output size
+   */
+  public static ImageBuffer resample(ImageBuffer source, PixelTransform transform) {
+    return resample(source, transform, ProgressMonitor.NONE);
+  }
+
+  /**
+   * Like {@link #resample(ImageBuffer, PixelTransform)}, reporting rows to {@code monitor}.
+   */
+  public static ImageBuffer resample(ImageBuffer source, PixelTransform transform,
+    ProgressMonitor monitor) {
+    return resample(source, transform, Interpolation.BILINEAR, monitor);
+  }
+
+  /**
+   * Like {@link #resample(ImageBuffer, PixelTransform, ProgressMonitor)}, interpolating with
+   * {@code interpolation}.
+   */
+  public static ImageBuffer resample(ImageBuffer source, PixelTransform transform,
+    Interpolation interpolation, ProgressMonitor monitor) {
+    int width = transform.getWidth();
+    int height = transform.getHeight();
+    PixelTransform inverse = transform.inverse(source.getWidth(), source.getHeight());
+    if (interpolation == Interpolation.LANCZOS3 && inverse.isAxisAligned()
+      && !inverse.isPixelExact()) {
+      return Lanczos.scale(source, inverse, width, height, monitor);
+    }
+    ImageBuffer result = ImageBuffer.allocate(width, height);
+    IntBuffer src = source.getPixels();
+    IntBuffer dst = result.getPixels();
+    int sw = source.getWidth();
+    int sh = source.getHeight();
+    ParallelPixels.forEachRowBand(height, SPAN, monitor, (row, rowEnd) ->
+      render(src, sw, sh, inverse, interpolation, dst, width, row, rowEnd));
+    return result;
+  }
+
+  /**
+   * @return {@code source} cropped by {@code transform} as a {@link ImageBuffer#view view} that
+   * shares its pixels, or null if the transform is anything but a whole-pixel crop lying inside
+   * the source
+   */
+  public static ImageBuffer cropView(ImageBuffer source, PixelTransform transform) {
+    if (!transform.isAffine() || transform.get(0) != 1 || transform.get(1) != 0
+      || transform.get(3) != 0 || transform.get(4) != 1) {
+      return null;
+    }
+    double x = -transform.get(2);
+    double y = -transform.get(5);
+    int w = transform.getWidth();
+    int h = transform.getHeight();
+    if (x != Math.rint(x) || y != Math.rint(y) || x < 0 || y < 0 || x + w > source.getWidth()
+      || y + h > source.getHeight()) {
+      return null;
+    }
+    return source.view((int) x, (int) y, w, h);
+  }
+
+  /**
+   * Renders the part of {@code source} transformed by {@code transform} that falls on the tile
+   * whose top-left corner is (x, y) of the output, reading only the source region it maps from.
+   * Runs on the calling thread; callers render distinct tiles in parallel.
+   */
+  public static void render(TiledImage source, PixelTransform transform, int x, int y,
+    ImageBuffer tile) {
+    int sw = source.getWidth();
+    int sh = source.getHeight();
+    PixelTransform inverse = transform.inverse(sw, sh);
+    // Bounding box of the tile's corners in the source, plus a margin for interpolation
+    double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+    double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+    for (int corner = 0; corner < 4; corner++) {
+      double cx = x + (corner & 1) * tile.getWidth();
+      double cy = y + (corner >> 1) * tile.getHeight();
+      double w = inverse.get(6) * cx + inverse.get(7) * cy + inverse.get(8);
+      double u = (inverse.get(0) * cx + inverse.get(1) * cy + inverse.get(2)) / w;
+      double v = (inverse.get(3) * cx + inverse.get(4) * cy + inverse.get(5)) / w;
+      minX = Math.min(minX, u);
+      minY = Math.min(minY, v);
+      maxX = Math.max(maxX, u);
+      maxY = Math.max(maxY, v);
+    }
+    int rx = (int) Math.max(0, Math.floor(minX) - 2);
+    int ry = (int) Math.max(0, Math.floor(minY) - 2);
+    int rx2 = (int) Math.min(sw, Math.ceil(maxX) + 2);
+    int ry2 = (int) Math.min(sh, Math.ceil(maxY) + 2);
+    if (rx >= rx2 || ry >= ry2) {
+      return; // the tile lies entirely outside the source
+    }
+    ImageBuffer region = source.readRegion(rx, ry, rx2 - rx, ry2 - ry);
+    // Tile pixels to region pixels: tile -> output -> source -> region
+    PixelTransform local = PixelTransform.translate(x, y, sw, sh)
+      .then(inverse)
+      .then(PixelTransform.translate(-rx, -ry, region.getWidth(), region.getHeight()));
+    render(region.getPixels(), region.getWidth(), region.getHeight(), local,
+      Interpolation.BILINEAR, tile.getPixels(), tile.getWidth(), 0, tile.getHeight());
+  }
+
+  /**
+   * Fills destination rows {@code [rowStart, rowEnd)} by sampling {@code src} through
+   * {@code inverse}, which maps destination to source coordinates.
+   */
+  private static void render(IntBuffer src, int sw, int sh, PixelTransform inverse,
+    Interpolation interpolation, IntBuffer dst, int width, int rowStart, int rowEnd) {
+    if (inverse.isPixelExact()) {
+      copyExact(src, sw, sh, inverse, dst, width, rowStart, rowEnd);
+    } else if (inverse.isAffine() && interpolation == Interpolation.BILINEAR) {
+      bilinearAffine(src, sw, sh, inverse, dst, width, rowStart, rowEnd);
+    } else {
+      renderTiles(src, sw, sh, inverse, interpolation, dst, width, rowStart, rowEnd);
+    }
+  }
+
+  private static void copyExact(IntBuffer src, int sw, int sh, PixelTransform inv,
+    IntBuffer dst, int width, int rowStart, int rowEnd) {
+    int stepX = (int) Math.rint(inv.get(0));
+    int stepY = (int) Math.rint(inv.get(3));
+    if (stepX == 0) {
+      copyTransposed(src, sw, sh, inv, dst, width, rowStart, rowEnd);
+      return;
+    }
+    for (int y = rowStart; y < rowEnd; y++) {
+      // Source pixel of destination (0, y), from its centre
+      int sx = (int) Math.floor(inv.get(0) * 0.5 + inv.get(1) * (y + 0.5) + inv.get(2));
+      int sy = (int) Math.floor(inv.get(3) * 0.5 + inv.get(4) * (y + 0.5) + inv.get(5));
+      int out = y * width;
+      for (int x = 0; x < width; x++, sx += stepX, sy += stepY) {
+        if (sx >= 0 && sy >= 0 && sx < sw && sy < sh) {
+          dst.put(out + x, src.get(sy * sw + sx));
+        }
+      }
+    }
+  }
+
+  /**
+   * {@link #copyExact} for transforms that swap the axes, such as 90° rotations, where each output
+   * row reads down a source column. The band is copied in blocks of {@value #SPAN} columns, so
+   * the source lines a block reads stay in cache from one output row to the next.
+   */
+  private static void copyTransposed(IntBuffer src, int sw, int sh, PixelTransform inv,
+    IntBuffer dst, int width, int rowStart, int rowEnd) {
+    // Pixel-exact, so a step along an output row or column moves one source pixel
+    int stepX = (int) Math.rint(inv.get(3)) * sw;
+    for (int block = 0; block < width; block += SPAN) {
+      int blockEnd = Math.min(block + SPAN, width);
+      for (int y = rowStart; y < rowEnd; y++) {
+        // Source pixel of destination (block, y), from its centre
+        int sx = (int) Math.floor(inv.get(0) * (block + 0.5) + inv.get(1) * (y + 0.5)
+          + inv.get(2));
+        int sy = (int) Math.floor(inv.get(3) * (block + 0.5) + inv.get(4) * (y + 0.5)
+          + inv.get(5));
+        if (sx < 0 || sx >= sw) {
+          continue;
+        }
+        // Clip the block to the columns whose source row lies in the source
+        int from = Math.max(block, stepX > 0 ? block - sy : block + sy - sh + 1);
+        int to = Math.min(blockEnd, stepX > 0 ? block + sh - sy : block + sy + 1);
+        int at = (sy + Integer.signum(stepX) * (from - block)) * sw + sx;
+        int out = y * width;
+        for (int x = from; x < to; x++, at += stepX) {
+          dst.put(out + x, src.get(at));
+        }
+      }
+    }
+  }
+
+  private static void bilinearAffine(IntBuffer src, int sw, int sh, PixelTransform inv,
+    IntBuffer dst, int width, int rowStart, int rowEnd) {
+    double du = inv.get(0);
+    double dv = inv.get(3);
+    for (int y = rowStart; y < rowEnd; y++) {
+      // Sample positions are shifted by half a pixel so that integers fall on pixel centres
+      double u = inv.get(0) * 0.5 + inv.get(1) * (y + 0.5) + inv.get(2) - 0.5;
+      double v = inv.get(3) * 0.5 + inv.get(4) * (y + 0.5) + inv.get(5) - 0.5;
+      int out = y * width;
+      for (int x = 0; x < width; x++, u += du, v += dv) {
+        dst.put(out + x, sample(src, sw, sh, u, v));
+      }
+    }
+  }
+
+  /**
+   * The general path: walks the rows tile by tile, {@value #SPAN} columns at a time. The source
+   * coordinates of a tile row are computed up front in a loop without branches or calls, which
+   * the JIT compiles to vector instructions; sampling then only gathers and weighs pixels.
+   */
+  private static void renderTiles(IntBuffer src, int sw, int sh, PixelTransform inv,
+    Interpolation interpolation, IntBuffer dst, int width, int rowStart, int rowEnd) {
+    double[] us = new double[SPAN];
+    double[] vs = new double[SPAN];
+    int[] wx = new int[2 * Lanczos.RADIUS];
+    int[] wy = new int[2 * Lanczos.RADIUS];
+    for (int x0 = 0; x0 < width; x0 += SPAN) {
+      int n = Math.min(SPAN, width - x0);
+      for (int y = rowStart; y < rowEnd; y++) {
+        coordinates(inv, x0, y, n, us, vs);
+        int out = y * width + x0;
+        // One loop per kernel, so that each call site stays monomorphic and inlined
+        switch (interpolation) {
+          case NEAREST -> {
+            for (int i = 0; i < n; i++) {
+              dst.put(out + i, sampleNearest(src, sw, sh, us[i], vs[i]));
+            }
+          }
+          case BILINEAR -> {
+            for (int i = 0; i < n; i++) {
+              dst.put(out + i, sample(src, sw, sh, us[i], vs[i]));
+            }
+          }
+          case BICUBIC -> {
+            for (int i = 0; i < n; i++) {
+              dst.put(out + i, sampleBicubic(src, sw, sh, us[i], vs[i]));
+            }
+          }
+          case LANCZOS3 -> {
+            for (int i = 0; i < n; i++) {
+              dst.put(out + i, Lanczos.sample(src, sw, sh, us[i], vs[i], wx, wy));
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Maps the centres of destination pixels {@code [x0, x0 + n)} of row {@code y} into the source,
+   * shifted by half a pixel so that integers fall on source pixel centres.
+   */
+  private static void coordinates(PixelTransform inv, int x0, int y, int n, double[] us,
+    double[] vs) {
+    double a = inv.get(0);
+    double d = inv.get(3);
+    double g = inv.get(6);
+    double cy = y + 0.5;
+    double bu = inv.get(1) * cy + inv.get(2);
+    double bv = inv.get(4) * cy + inv.get(5);
+    double bw = inv.get(7) * cy + inv.get(8);
+    double cx0 = x0 + 0.5;
+    for (int i = 0; i < n; i++) {
+      double cx = cx0 + i;
+      double w = g * cx + bw;
+      us[i] = (a * cx + bu) / w - 0.5;
+      vs[i] = (d * cx + bv) / w - 0.5;
+    }
+  }
+
+  /**
+   * The pixel whose centre is nearest to (u, v), where integer coordinates are pixel centres.
+   */
+  static int sampleNearest(IntBuffer src, int sw, int sh, double u, double v) {
+    if (outside(sw, sh, u, v)) {
+      return 0;
+    }
+    return pixel(src, sw, sh, (int) Math.floor(u + 0.5), (int) Math.floor(v + 0.5));
+  }
+
+  /**
+   * Bilinear sample at (u, v), where integer coordinates are pixel centres, with 8-bit weights.
+   */
+  static int sample(IntBuffer src, int sw, int sh, double u, double v) {
+    if (outside(sw, sh, u, v)) {
+      return 0;
+    }
+    int x0 = (int) Math.floor(u);
+    int y0 = (int) Math.floor(v);
+    int fx = (int) ((u - x0) * 256);
+    int fy = (int) ((v - y0) * 256);
+    int p00 = pixel(src, sw, sh, x0, y0);
+    int p10 = pixel(src, sw, sh, x0 + 1, y0);
+    int p01 = pixel(src, sw, sh, x0, y0 + 1);
+    int p11 = pixel(src, sw, sh, x0 + 1, y0 + 1);
+    int w00 = (256 - fx) * (256 - fy);
+    int w10 = fx * (256 - fy);
+    int w01 = (256 - fx) * fy;
+    int w11 = fx * fy;
+    int result = 0;
+    for (int shift = 0; shift < 32; shift += 8) {
+      int c = ((p00 >>> shift) & 0xFF) * w00 + ((p10 >>> shift) & 0xFF) * w10
+        + ((p01 >>> shift) & 0xFF) * w01 + ((p11 >>> shift) & 0xFF) * w11;
+      result |= ((c + (1 << 15)) >>> 16) << shift;
+    }
+    return result;
+  }
+
+  /**
+   * Catmull-Rom sample at (u, v), where integer coordinates are pixel centres, with 10-bit
+   * weights. The result is clamped to a valid premultiplied colour, as the spline overshoots at
+   * sharp edges.
+   */
+  static int sampleBicubic(IntBuffer src, int sw, int sh, double u, double v) {
+    if (outside(sw, sh, u, v)) {
+      return 0;
+    }
+    int x0 = (int) Math.floor(u);
+    int y0 = (int) Math.floor(v);
+    double tx = u - x0;
+    double ty = v - y0;
+    // Pixel x0 - 1 is 1 + tx away from the sample, x0 + 2 is 2 - tx away; weights sum to 1024
+    int wx1 = near(tx);
+    int wx2 = near(1 - tx);
+    int wx3 = far(2 - tx);
+    int wx0 = 1024 - wx1 - wx2 - wx3;
+    int wy1 = near(ty);
+    int wy2 = near(1 - ty);
+    int wy3 = far(2 - ty);
+    int wy0 = 1024 - wy1 - wy2 - wy3;
+    boolean inside = x0 >= 1 && y0 >= 1 && x0 + 2 < sw && y0 + 2 < sh;
+    int a = 0, r = 0, g = 0, b = 0;
+    for (int j = -1; j <= 2; j++) {
+      int wy = j == -1 ? wy0 : j == 0 ? wy1 : j == 1 ? wy2 : wy3;
+      int y = y0 + j;
+      int p0, p1, p2, p3;
+      if (inside) {
+        int i = y * sw + x0;
+        p0 = src.get(i - 1);
+        p1 = src.get(i);
+        p2 = src.get(i + 1);
+        p3 = src.get(i + 2);
+      } else {
+        p0 = pixel(src, sw, sh, x0 - 1, y);
+        p1 = pixel(src, sw, sh, x0, y);
+        p2 = pixel(src, sw, sh, x0 + 1, y);
+        p3 = pixel(src, sw, sh, x0 + 2, y);
+      }
+      a += wy * (wx0 * (p0 >>> 24) + wx1 * (p1 >>> 24) + wx2 * (p2 >>> 24) + wx3 * (p3 >>> 24));
+      r += wy * (wx0 * (p0 >> 16 & 0xFF) + wx1 * (p1 >> 16 & 0xFF) + wx2 * (p2 >> 16 & 0xFF)
+        + wx3 * (p3 >> 16 & 0xFF));
+      g += wy * (wx0 * (p0 >> 8 & 0xFF) + wx1 * (p1 >> 8 & 0xFF) + wx2 * (p2 >> 8 & 0xFF)
+        + wx3 * (p3 >> 8 & 0xFF));
+      b += wy * (wx0 * (p0 & 0xFF) + wx1 * (p1 & 0xFF) + wx2 * (p2 & 0xFF) + wx3 * (p3 & 0xFF));
+    }
+    int alpha = clamp((a + (1 << 19)) >> 20, 255);
+    return alpha << 24 | clamp((r + (1 << 19)) >> 20, alpha) << 16
+      | clamp((g + (1 << 19)) >> 20, alpha) << 8 | clamp((b + (1 << 19)) >> 20, alpha);
+  }
+
+  /**
+   * Catmull-Rom weight, times 1024, of a pixel at distance {@code t} from 0 to 1 from the sample.
+   */
+  private static int near(double t) {
+    return (int) Math.round(((1.5 * t - 2.5) * t * t + 1) * 1024);
+  }
+
+  /**
+   * Catmull-Rom weight, times 1024, of a pixel at distance {@code t} from 1 to 2 from the sample.
+   */
+  private static int far(double t) {
+    return (int) Math.round((((-0.5 * t + 2.5) * t - 4) * t + 2) * 1024);
+  }
+
+  static int clamp(int value, int max) {
+    return value < 0 ? 0 : Math.min(value, max);
+  }
+
+  /**
+   * @return whether (u, v), where integer coordinates are pixel centres, lies outside the area the
+   * source's pixels cover
+   */
+  static boolean outside(int sw, int sh, double u, double v) {
+    return u < -0.5 || v < -0.5 || u >= sw - 0.5 || v >= sh - 0.5;
+  }
+
+  /**
+   * @return pixel (x, y), or the nearest edge pixel if (x, y) lies outside the source
+   */
+  static int pixel(IntBuffer src, int sw, int sh, int x, int y) {
+    return src.get(edge(y, sh) * sw + edge(x, sw));
+  }
+
+  /**
+   * @return {@code i} clamped to the pixels {@code 0 .. size - 1}
+   */
+  static int edge(int i, int size) {
+    return i < 0 ? 0 : Math.min(i, size - 1);
+  }
+}
@@ -0,0 +1,26 @@
+package io.distorio.operation.api;
+
+import io.distorio.operation.api.ImageOperation.OperationContext;
+
+/**
+ * The selected region of the image, in image pixels, for operations that work on part of it.
+ * Hosts that have a selection implement this on their {@link OperationContext}; operations find it
+ * with {@code context.lookup(SelectionCapability.class)}.
+ */
+public interface SelectionCapability {
+
+  double getSelectionX();
+
+  double getSelectionY();
+
+  double getSelectionWidth();
+
+  double getSelectionHeight();
+
+  /**
+   * @return whether the selection covers any area
+   */
+  default boolean hasSelection() {
+    return getSelectionWidth() > 0 && getSelectionHeight() > 0;
+  }
+}
@@ -0,0 +1,79 @@
+package io.distorio.operation.api;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Least-recently-used cache of {@link TiledImage} tiles, bounded by the total number of pixel
+ * bytes it holds. One instance is shared by all tiled images so that the budget covers the whole
+ * process; set it with {@code -Ddistorio.tiles.cacheMb} (default 512).
+ * <p>
+ * Tiles are produced outside the lock, so a slow decode never blocks lookups of other tiles. Two
+ * threads asking for the same missing tile may both produce it; the first one stored wins.
+ */
+final class TileCache {
+
+  private static final TileCache SHARED =
+    new TileCache((long) Integer.getInteger("distorio.tiles.cacheMb", 512) << 20);
+
+  private final long capacityBytes;
+  private final LinkedHashMap<Key, ImageBuffer> tiles = new LinkedHashMap<>(256, 0.75f, true);
+  private long sizeBytes;
+
+  private record Key(TiledImage image, int tileX, int tileY) {
+  }
+
+  TileCache(long capacityBytes) {
+    this.capacityBytes = capacityBytes;
+  }
+
+  static TileCache shared() {
+    return SHARED;
+  }
+
+  ImageBuffer get(TiledImage image, int tileX, int tileY, Supplier<ImageBuffer> producer) {
+    Key key = new Key(image, tileX, tileY);
+    synchronized (this) {
+      ImageBuffer tile = tiles.get(key);
+      if (tile != null) {
+        return tile;
+      }
+    }
+    ImageBuffer tile = producer.get();
+    synchronized (this) {
+      ImageBuffer existing = tiles.putIfAbsent(key, tile);
+      if (existing != null) {
+        return existing;
+      }
+      sizeBytes += bytes(tile);
+      evictToCapacity();
+    }
+    return tile;
+  }
+
+  synchronized void evictAll(TiledImage image) {
+    Iterator<Map.Entry<Key, ImageBuffer>> it = tiles.entrySet().iterator();
+    while (it.hasNext()) {
+      Map.Entry<Key, ImageBuffer> entry = it.next();
+      if (entry.getKey().image() == image) {
+        sizeBytes -= bytes(entry.getValue());
+        it.remove();
+      }
+    }
+  }
+
+  private void evictToCapacity() {
+    Iterator<ImageBuffer> it = tiles.values().iterator();
+    // Always keep the tile just added, even if it alone exceeds the budget
+    while (sizeBytes > capacityBytes && tiles.size() > 1) {
+      sizeBytes -= bytes(it.next());
+      it.remove();
+    }
+  }
+
+  private static long bytes(ImageBuffer tile) {
+    return (long) tile.getWidth() * tile.getHeight() * Integer.BYTES;
+  }
+}
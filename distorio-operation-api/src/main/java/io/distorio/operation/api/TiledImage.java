@@ -0,0 +1,252 @@
+package io.distorio.operation.api;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * An image split into square tiles that are produced on demand and kept in a shared, size-bounded
+ * LRU cache ({@link TileCache}). Use it for images too large for one {@link ImageBuffer} or for the
+ * JavaFX texture limits: only tiles that are looked at are ever decoded or computed, and tiles that
+ * have not been used recently are dropped and re-created when needed again.
+ * <p>
+ * Tiles come from a {@link TileSource}: a decoder reading regions of a file, an in-memory
+ * {@link ImageBuffer} ({@link #of(ImageBuffer)}), or another tiled image plus a per-tile function
+ * ({@link #derive}, {@link #transform}). Derived images are lazy, so a chain of tile-wise
+ * operations costs nothing until tiles are requested. Tiles must be treated as read-only.
+ */
+public final class TiledImage {
+
+  /**
+   * Default tile edge length in pixels.
+   */
+  public static final int DEFAULT_TILE_SIZE = 512;
+
+  private final int width;
+  private final int height;
+  private final int tileSize;
+  private final TileSource source;
+  private final ImageBuffer backing;
+  // For images made by transform(): the image they are resampled from, and how
+  private final TiledImage base;
+  private final PixelTransform baseTransform;
+
+  private TiledImage(int width, int height, int tileSize, TileSource source, ImageBuffer backing) {
+    this(width, height, tileSize, source, backing, null, null);
+  }
+
+  private TiledImage(int width, int height, int tileSize, TileSource source, ImageBuffer backing,
+    TiledImage base, PixelTransform baseTransform) {
+    this.width = width;
+    this.height = height;
+    this.tileSize = tileSize;
+    this.source = source;
+    this.backing = backing;
+    this.base = base;
+    this.baseTransform = baseTransform;
+  }
+
+  /**
+   * Produces the pixels of one tile.
+   */
+  @FunctionalInterface
+  public interface TileSource extends AutoCloseable {
+
+    /**
+     * Fills {@code tile}, which is {@code tile.getWidth() x tile.getHeight()} pixels, with the
+     * image region whose top-left corner is (x, y). May be called concurrently for distinct tiles.
+     */
+    void readTile(int x, int y, ImageBuffer tile) throws IOException;
+
+    /**
+     * Releases decoder resources. Called by {@link TiledImage#close()}.
+     */
+    @Override
+    default void close() throws IOException {
+    }
+  }
+
+  /**
+   * Computes one tile of a derived image from its source image.
+   */
+  @FunctionalInterface
+  public interface TileRenderer {
+
+    /**
+     * Fills {@code tile} with the derived image region whose top-left corner is (x, y).
+     */
+    void render(TiledImage source, int x, int y, ImageBuffer tile);
+  }
+
+  /**
+   * Creates a tiled image whose tiles are read from {@code source} when first needed.
+   */
+  public static TiledImage create(int width, int height, int tileSize, TileSource source) {
+    return new TiledImage(width, height, tileSize, source, null);
+  }
+
+  /**
+   * Views an in-memory buffer as a tiled image. Tiles are copied out of the buffer on demand.
+   */
+  public static TiledImage of(ImageBuffer buffer) {
+    return new TiledImage(buffer.getWidth(), buffer.getHeight(), DEFAULT_TILE_SIZE,
+      (x, y, tile) -> copyRegion(buffer, x, y, tile, 0, 0, tile.getWidth(), tile.getHeight()),
+      buffer);
+  }
+
+  /**
+   * Creates a lazy {@code width x height} image whose tiles are rendered from this image by
+   * {@code renderer} when first needed. Nothing is computed by this call.
+   */
+  public TiledImage derive(int width, int height, TileRenderer renderer) {
+    return new TiledImage(width, height, tileSize,
+      (x, y, tile) -> renderer.render(this, x, y, tile), null);
+  }
+
+  /**
+   * Creates a lazy image of this one moved through {@code transform}; each tile is resampled from
+   * the source region it maps from when first needed. Transforms of transformed images are
+   * composed onto the original, so a chain of any length renders a tile with a single resampling
+   * of the original pixels, and a chain that cancels out returns the original itself. A crop of
+   * an image held in a buffer is not lazy at all: it wraps a {@link ImageBuffer#view view} of it.
+   */
+  public TiledImage transform(PixelTransform transform) {
+    if (base != null) {
+      return base.transform(baseTransform.then(transform));
+    }
+    if (transform.isIdentity() && transform.getWidth() == width
+      && transform.getHeight() == height) {
+      return this;
+    }
+    ImageBuffer view = backing == null ? null : Resampler.cropView(backing, transform);
+    if (view != null) {
+      return of(view);
+    }
+    return new TiledImage(transform.getWidth(), transform.getHeight(), tileSize,
+      (x, y, tile) -> Resampler.render(this, transform, x, y, tile), null, this, transform);
+  }
+
+  /**
+   * Creates the next, half-size pyramid level of this image (see {@link ImagePyramid}). Like any
+   * derived image it is lazy: a level tile is only computed when it is requested.
+   */
+  public TiledImage downsample() {
+    return derive(ImagePyramid.halfSize(width), ImagePyramid.halfSize(height),
+      (source, x, y, tile) -> {
+        int sx = 2 * x;
+        int sy = 2 * y;
+        int sw = Math.min(2 * tile.getWidth(), source.getWidth() - sx);
+        int sh = Math.min(2 * tile.getHeight(), source.getHeight() - sy);
+        ImageBuffer region = source.readRegion(sx, sy, sw, sh);
+        ImagePyramid.halve(region.getPixels(), sw, sh, tile.getPixels(), 0, tile.getHeight());
+      });
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  public int getTileSize() {
+    return tileSize;
+  }
+
+  public int getTilesX() {
+    return (width + tileSize - 1) / tileSize;
+  }
+
+  public int getTilesY() {
+    return (height + tileSize - 1) / tileSize;
+  }
+
+  /**
+   * @return the buffer this image was created from by {@link #of(ImageBuffer)}, or null if its
+   * pixels only exist as tiles
+   */
+  public ImageBuffer getBackingBuffer() {
+    return backing;
+  }
+
+  /**
+   * Returns tile (tileX, tileY), producing it if it is not cached. Edge tiles are clipped to the
+   * image, so they may be smaller than {@link #getTileSize()}.
+   *
+   * @throws UncheckedIOException if the tile source fails
+   */
+  public ImageBuffer getTile(int tileX, int tileY) {
+    return TileCache.shared().get(this, tileX, tileY, () -> {
+      int x = tileX * tileSize;
+      int y = tileY * tileSize;
+      ImageBuffer tile = ImageBuffer.allocate(
+        Math.min(tileSize, width - x), Math.min(tileSize, height - y));
+      try {
+        source.readTile(x, y, tile);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      return tile;
+    });
+  }
+
+  /**
+   * Copies the {@code w x h} region at (x, y) into a new buffer, assembling it from tiles.
+   */
+  public ImageBuffer readRegion(int x, int y, int w, int h) {
+    ImageBuffer region = ImageBuffer.allocate(w, h);
+    readRegion(x, y, region);
+    return region;
+  }
+
+  /**
+   * Fills {@code dst} with the region of the same size whose top-left corner is (x, y).
+   */
+  public void readRegion(int x, int y, ImageBuffer dst) {
+    if (backing != null) {
+      copyRegion(backing, x, y, dst, 0, 0, dst.getWidth(), dst.getHeight());
+      return;
+    }
+    int x2 = x + dst.getWidth();
+    int y2 = y + dst.getHeight();
+    for (int ty = y / tileSize; ty * tileSize < y2; ty++) {
+      for (int tx = x / tileSize; tx * tileSize < x2; tx++) {
+        int tileX = tx * tileSize;
+        int tileY = ty * tileSize;
+        int sx = Math.max(x, tileX);
+        int sy = Math.max(y, tileY);
+        int ex = Math.min(x2, tileX + tileSize);
+        int ey = Math.min(y2, tileY + tileSize);
+        copyRegion(getTile(tx, ty), sx - tileX, sy - tileY, dst, sx - x, sy - y, ex - sx, ey - sy);
+      }
+    }
+  }
+
+  /**
+   * Materializes the whole image into one buffer, rendering tiles in parallel.
+   *
+   * @throws IllegalArgumentException if the image is too large for a single buffer
+   */
+  public ImageBuffer toBuffer() {
+    if (backing != null) {
+      return backing;
+    }
+    ImageBuffer out = ImageBuffer.allocate(width, height);
+    ParallelPixels.forEachTile(width, height, tileSize, (x, y, w, h) ->
+      copyRegion(getTile(x / tileSize, y / tileSize), 0, 0, out, x, y, w, h));
+    return out;
+  }
+
+  /**
+   * Drops this image's cached tiles and closes its tile source.
+   */
+  public void close() throws IOException {
+    TileCache.shared().evictAll(this);
+    source.close();
+  }
+
+  private static void copyRegion(ImageBuffer src, int sx, int sy, ImageBuffer dst, int dx, int dy,
+    int w, int h) {
+    src.copyTo(sx, sy, w, h, dst, dx, dy);
+  }
+}
@@ -1,27 +1,55 @@
 package io.distorio.ui.common;
 
+import java.util.HashMap;
 import java.util.Locale;
+import java.util.Map;
 import java.util.ResourceBundle;
+import javafx.beans.binding.Bindings;
+import javafx.beans.binding.ObjectBinding;
+import javafx.beans.binding.StringBinding;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
 
+/**
+ * Translated UI texts. Labels bind to {@link #text} so that {@link #setLocale} updates them in
+ * place; the locale must then only be changed on the FX thread.
+ */
 public class I18n {
 
-  private static Locale currentLocale = Locale.ENGLISH;
-  private static ResourceBundle bundle = loadBundle(currentLocale);
+  private static final ReadOnlyObjectWrapper<Locale> currentLocale =
+    new ReadOnlyObjectWrapper<>(Locale.ENGLISH);
+  // Reading the bundle revalidates the locale, so that every change of locale is seen
+  private static final ObjectBinding<ResourceBundle> bundle =
+    Bindings.createObjectBinding(() -> loadBundle(currentLocale.get()), currentLocale);
+  // One binding per key, shared by every label showing it
+  private static final Map<String, StringBinding> texts = new HashMap<>();
 
   private static ResourceBundle loadBundle(Locale locale) {
     return ResourceBundle.getBundle("i18n/messages", locale);
   }
 
   public static void setLocale(Locale locale) {
-    currentLocale = locale;
-    bundle = loadBundle(locale);
+    currentLocale.set(locale);
   }
 
   public static String get(String key) {
-    return bundle.getString(key);
+    return bundle.get().getString(key);
+  }
+
+  /**
+   * @return the text of {@code key} in the current locale, updated whenever the locale changes.
+   * Must be called on the FX thread.
+   */
+  public static StringBinding text(String key) {
+    return texts.computeIfAbsent(key,
+      k -> Bindings.createStringBinding(() -> get(k), bundle));
   }
 
   public static Locale getCurrentLocale() {
-    return currentLocale;
+    return currentLocale.get();
+  }
+
+  public static ReadOnlyObjectProperty<Locale> currentLocaleProperty() {
+    return currentLocale.getReadOnlyProperty();
   }
 }
@@ -0,0 +1,135 @@
+package io.distorio.ui.common;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import javafx.scene.image.Image;
+
+/**
+ * Rasterized icons, shared by every button and menu item that shows the same icon.
+ * <p>
+ * An icon is rendered once per class loader, resource path, size, colour replacements and output
+ * scale, directly at {@code size * scale} pixels, so the {@link javafx.scene.image.ImageView}
+ * showing it at {@code size} needs no further scaling. Rebuilding the UI then reuses the images
+ * instead of reading, parsing and rendering every SVG again. Safe to use from any thread.
+ * <p>
+ * Icons can also be rendered ahead of time on an executor with {@link #load}; a lookup of an icon
+ * that is still being rendered shares that render instead of starting another.
+ */
+public final class IconCache {
+
+  private static final IconCache SHARED = new IconCache();
+
+  private final Map<Key, CompletableFuture<Image>> images = new ConcurrentHashMap<>();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  private record Key(ClassLoader loader, String path, double size, Map<String, String> colors,
+                     double scale) {
+  }
+
+  /**
+   * @return the cache the application's icons go through
+   */
+  public static IconCache shared() {
+    return SHARED;
+  }
+
+  /**
+   * Returns the icon at {@code path}, rendering it on first use. If it is being rendered on another
+   * thread, waits for that render.
+   *
+   * @param loader the class loader whose resources contain the icon
+   * @param size   the size the icon is displayed at, in logical pixels
+   * @param colors colour replacements for SVG icons, as in {@link SvgUtils#loadSvg}
+   * @param scale  the output scale of the screen, so the icon stays sharp on HiDPI displays
+   * @return the icon, or null if there is no such resource or it cannot be rendered
+   */
+  public Image get(ClassLoader loader, String path, double size, Map<String, String> colors,
+    double scale) {
+    return load(loader, path, size, colors, scale, Runnable::run).join();
+  }
+
+  /**
+   * Returns the icon at {@code path}, rendering it on {@code executor} on first use. The future
+   * completes with null if there is no such resource or it cannot be rendered.
+   *
+   * @see #get
+   */
+  public CompletableFuture<Image> load(ClassLoader loader, String path, double size,
+    Map<String, String> colors, double scale, Executor executor) {
+    Key key = new Key(loader, path, size, Map.copyOf(colors), scale);
+    CompletableFuture<Image> image = images.get(key);
+    if (image != null) {
+      hits.increment();
+      return image;
+    }
+    CompletableFuture<Image> created = new CompletableFuture<>();
+    image = images.putIfAbsent(key, created);
+    if (image != null) {
+      hits.increment();
+      return image;
+    }
+    misses.increment();
+    executor.execute(() -> {
+      try {
+        created.complete(render(key));
+      } catch (RuntimeException e) {
+        // Not kept, so the next lookup tries again
+        images.remove(key, created);
+        created.completeExceptionally(e);
+      }
+    });
+    return created;
+  }
+
+  private static Image render(Key key) {
+    int pixels = Math.max(1, (int) Math.ceil(key.size() * key.scale()));
+    try (InputStream stream = key.loader().getResourceAsStream(key.path())) {
+      if (stream == null) {
+        return null;
+      }
+      if (key.path().toLowerCase(Locale.ROOT).endsWith(".svg")) {
+        return SvgUtils.loadSvg(stream, key.colors(), pixels, pixels);
+      }
+      Image image = new Image(stream, pixels, pixels, true, true);
+      return image.isError() ? null : image;
+    } catch (IOException e) {
+      System.err.println("Failed to load icon '" + key.path() + "': " + e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * @return how many lookups found an icon that was already rendered
+   */
+  public long getHits() {
+    return hits.sum();
+  }
+
+  /**
+   * @return how many lookups had to render the icon
+   */
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  /**
+   * @return the number of icons held, including those still being rendered
+   */
+  public int size() {
+    return images.size();
+  }
+
+  /**
+   * Drops all icons, for example after the output scale of the screen has changed.
+   */
+  public void clear() {
+    images.clear();
+  }
+}
@@ -1,11 +1,38 @@
 package io.distorio.ui.common;
 
-import java.io.InputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import javafx.application.Platform;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
+import javafx.scene.image.WritableImage;
+import javafx.stage.Screen;
 
 public class IconUtil {
 
+  private static final String BUILT_IN_DIR = "META-INF/icons/";
+  // Shown, transparent and scaled to the icon size, until the icon has been rendered
+  private static final Image BLANK = new WritableImage(1, 1);
+
+  private static final AtomicInteger RENDER_THREADS = new AtomicInteger();
+  private static final ExecutorService RENDERER = Executors.newFixedThreadPool(
+    Runtime.getRuntime().availableProcessors(), r -> {
+      Thread thread = new Thread(r, "distorio-icon-" + RENDER_THREADS.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+
   /**
    * Load an icon with the default classloader (current module)
    */
@@ -16,52 +43,103 @@ public class IconUtil {
   /**
    * Load an icon using a specific classloader (for service providers)
    * If classLoader is null, uses the current module's classloader
+   * <p>
+   * Icons that are not rendered yet are rendered in the background; the view stays blank, at
+   * the size of the icon, until it is ready. Must be called on the FX thread.
    */
   public static ImageView icon(String iconName, double size, ClassLoader classLoader) {
-    Image img = loadIcon(iconName, classLoader);
-    ImageView view = new ImageView(img);
+    ImageView view = new ImageView(BLANK);
     view.setFitWidth(size);
     view.setFitHeight(size);
     view.setPreserveRatio(true);
+    CompletableFuture<Image> icon = loadIcon(iconName, size, classLoader);
+    if (icon.isDone()) {
+      view.setImage(icon.join());
+    } else {
+      icon.thenAccept(img -> Platform.runLater(() -> view.setImage(img)));
+    }
     return view;
   }
 
   /**
-   * Unified icon loading logic that tries multiple classloaders in order:
-   * 1. Provider classloader (if provided)
-   * 2. Current module's classloader (fallback)
-   * 3. Placeholder icon (if all else fails)
+   * Starts rendering an icon in the background, so that a later {@link #icon} with the same
+   * arguments finds it ready. Must be called on the FX thread.
+   *
+   * @return completes once the icon is rendered
+   */
+  public static CompletableFuture<?> prewarm(String iconName, double size,
+    ClassLoader classLoader) {
+    return loadIcon(iconName, size, classLoader);
+  }
+
+  /**
+   * Starts rendering every icon under META-INF/icons of this module in the background, as
+   * {@link #prewarm} does. Must be called on the FX thread.
+   *
+   * @return completes once all of them are rendered
+   */
+  public static CompletableFuture<?> prewarmBuiltIn(double size) {
+    double scale = outputScale();
+    return CompletableFuture.supplyAsync(IconUtil::builtInIcons, RENDERER)
+      .thenCompose(icons -> CompletableFuture.allOf(icons.stream()
+        .map(iconName -> IconCache.shared().load(IconUtil.class.getClassLoader(), iconName, size,
+          Map.of(), scale, RENDERER))
+        .toArray(CompletableFuture[]::new)));
+  }
+
+  /**
+   * Lists the SVG icons under META-INF/icons of this module, whether it is a directory of classes
+   * or a jar.
+   */
+  private static List<String> builtInIcons() {
+    try {
+      Path location =
+        Path.of(IconUtil.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+      if (Files.isDirectory(location)) {
+        return listSvg(location.resolve(BUILT_IN_DIR));
+      }
+      try (FileSystem jar = FileSystems.newFileSystem(location)) {
+        return listSvg(jar.getPath(BUILT_IN_DIR));
+      }
+    } catch (IOException | URISyntaxException | RuntimeException e) {
+      System.err.println("Failed to list built-in icons: " + e.getMessage());
+      return List.of();
+    }
+  }
+
+  private static List<String> listSvg(Path dir) throws IOException {
+    try (Stream<Path> files = Files.list(dir)) {
+      return files.map(file -> BUILT_IN_DIR + file.getFileName())
+        .filter(name -> name.endsWith(".svg"))
+        .sorted()
+        .toList();
+    }
+  }
+
+  /**
+   * Loads the icon through the shared {@link IconCache}, rendered for the primary screen on the
+   * icon threads, from the provider classloader if given and the current module's otherwise.
+   * Falls back to a placeholder icon if it cannot be loaded.
    */
-  private static Image loadIcon(String iconName, ClassLoader classLoader) {
+  private static CompletableFuture<Image> loadIcon(String iconName, double size,
+    ClassLoader classLoader) {
     ClassLoader loader = IconUtil.class.getClassLoader();
     if (classLoader != null) {
       loader = classLoader;
     }
-    Image icon = loadIconFromClassLoader(iconName, loader);
-    if (icon != null) {
-      return icon;
-    }
-    return createPlaceholderIcon();
+    return IconCache.shared().load(loader, iconName, size, Map.of(), outputScale(), RENDERER)
+      .exceptionally(e -> {
+        System.err.println("Failed to load icon '" + iconName + "': " + e.getMessage());
+        return null;
+      })
+      .thenApply(icon -> icon != null ? icon : createPlaceholderIcon());
   }
 
   /**
-   * Attempts to load an icon from a specific classloader
+   * @return the output scale of the primary screen, 1 on a standard display
    */
-  private static Image loadIconFromClassLoader(String iconName, ClassLoader classLoader) {
-    try {
-      InputStream stream = classLoader.getResourceAsStream(iconName);
-      if (stream != null) {
-        if (iconName.toLowerCase().endsWith(".svg")) {
-          return SvgUtils.loadSvg(stream);
-        } else {
-          return new Image(stream);
-        }
-      }
-    } catch (Exception e) {
-      // Log the error but don't fail - fall back to next classloader
-      System.err.println("Failed to load icon '" + iconName + "' from classloader: " + e.getMessage());
-    }
-    return null;
+  static double outputScale() {
+    return Math.max(1, Screen.getPrimary().getOutputScaleX());
   }
 
   private static Image createPlaceholderIcon() {
@@ -1,5 +1,7 @@
 package io.distorio.ui.common;
 
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -63,6 +65,21 @@ public final class SvgUtils {
    * @return A configured Image, or null if loading fails.
    */
   public static Image loadSvg(InputStream ins, Map<String, String> colorReplacements) {
+    return loadSvg(ins, colorReplacements, 0, 0);
+  }
+
+  /**
+   * Loads an SVG and renders it straight at {@code width x height} pixels, scaled to fit and
+   * centred, so the result needs no further scaling. A size of 0 keeps the SVG's own size.
+   *
+   * @param ins               The stream containing the SVG file.
+   * @param colorReplacements Colors to replace, as in {@link #loadSvg(InputStream, Map)}.
+   * @param width             The width of the Image in pixels, or 0.
+   * @param height            The height of the Image in pixels, or 0.
+   * @return A configured Image, or null if loading fails.
+   */
+  public static Image loadSvg(InputStream ins, Map<String, String> colorReplacements, int width,
+    int height) {
     try {
       // 1. Read the content of the SVG file into a string
       String svgContent = readStringFromIns(ins);
@@ -75,7 +92,7 @@ public final class SvgUtils {
       }
 
       // 3. Convert the modified SVG string into a JavaFX Image using svgSalamander
-      Image image = svgToImage(svgContent);
+      Image image = svgToImage(svgContent, width, height);
 
       // 4. Create and return the Image
       return image;
@@ -91,21 +108,35 @@ public final class SvgUtils {
    * Renders a string containing SVG data into a JavaFX Image using svgSalamander.
    *
    * @param svgContent The string containing the SVG data.
+   * @param width      The width to render at, or 0 for the SVG's own width.
+   * @param height     The height to render at, or 0 for the SVG's own height.
    * @return The rendered Image object.
    * @throws SVGException if the svgSalamander rendering fails.
    * @throws IOException  if the in-memory stream operations fail.
    */
-  private static Image svgToImage(String svgContent) throws SVGException, IOException {
+  private static Image svgToImage(String svgContent, int width, int height)
+    throws SVGException, IOException {
     SVGUniverse universe = new SVGUniverse();
     // Load SVG from string
     URI uri = universe.loadSVG(new StringReader(svgContent), "icon");
     SVGDiagram diagram = universe.getDiagram(uri);
     // Set a default size if not specified
-    int width = (int) Math.ceil(diagram.getWidth() > 0 ? diagram.getWidth() : 32);
-    int height = (int) Math.ceil(diagram.getHeight() > 0 ? diagram.getHeight() : 32);
+    double svgWidth = diagram.getWidth() > 0 ? diagram.getWidth() : 32;
+    double svgHeight = diagram.getHeight() > 0 ? diagram.getHeight() : 32;
+    if (width <= 0 || height <= 0) {
+      width = (int) Math.ceil(svgWidth);
+      height = (int) Math.ceil(svgHeight);
+    }
     BufferedImage bufferedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    Graphics2D graphics = bufferedImage.createGraphics();
+    graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+    // Fit the diagram into the image, keeping its aspect ratio
+    double scale = Math.min(width / svgWidth, height / svgHeight);
+    graphics.translate((width - svgWidth * scale) / 2, (height - svgHeight * scale) / 2);
+    graphics.scale(scale, scale);
     diagram.setIgnoringClipHeuristic(true); // For better compatibility
-    diagram.render(bufferedImage.createGraphics());
+    diagram.render(graphics);
+    graphics.dispose();
     return SwingFXUtils.toFXImage(bufferedImage, null);
   }
 